@@ -0,0 +1,103 @@
+package com.pcm.clockview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Benchmark of {@link DistanceRangeView} from 100 to 10k objects against drawing each
+ * object on its own, frame and update times in logcat.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DistanceRangeBenchmarkTest {
+    private static final String TAG = DistanceRangeBenchmarkTest.class.getSimpleName();
+    private static final int[] COUNTS = {100, 1000, 5000, 10000};
+    private static final int SIZE = 1000;
+    private static final float RANGE = 50;
+    private static final int FRAMES = 20;
+    // objects moved per incremental update
+    private static final int MOVED = 100;
+
+    @Test
+    public void frameTime_scalesWithObjectCount() throws Exception {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Canvas canvas = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+                DistanceRangeView view = new DistanceRangeView(InstrumentationRegistry.getTargetContext());
+                int spec = View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY);
+                view.measure(spec, spec);
+                view.layout(0, 0, SIZE, SIZE);
+                Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+                paint.setColor(Color.RED);
+
+                Random random = new Random(7);
+                int maxCount = COUNTS[COUNTS.length - 1];
+                float[] distances = new float[maxCount];
+                float[] bearings = new float[maxCount];
+                for (int index = 0; index < maxCount; index++) {
+                    distances[index] = random.nextFloat() * RANGE;
+                    bearings[index] = random.nextFloat() * 360;
+                }
+                int[] moved = new int[MOVED];
+                float[] movedDistances = new float[MOVED];
+                float[] movedBearings = new float[MOVED];
+
+                long batchedFrame = 0;
+                long separateFrame = 0;
+                for (int count : COUNTS) {
+                    long setStart = System.nanoTime();
+                    view.setTargets(distances, bearings, count);
+                    long setTime = System.nanoTime() - setStart;
+
+                    for (int index = 0; index < MOVED; index++) {
+                        moved[index] = random.nextInt(count);
+                        movedDistances[index] = random.nextFloat() * RANGE;
+                        movedBearings[index] = random.nextFloat() * 360;
+                    }
+                    long updateStart = System.nanoTime();
+                    view.updateTargets(moved, movedDistances, movedBearings, MOVED);
+                    long updateTime = System.nanoTime() - updateStart;
+
+                    view.draw(canvas);
+                    long start = System.nanoTime();
+                    for (int frame = 0; frame < FRAMES; frame++) {
+                        view.draw(canvas);
+                    }
+                    batchedFrame = (System.nanoTime() - start) / FRAMES;
+
+                    // what the view did per object before: trigonometry and one draw call each
+                    start = System.nanoTime();
+                    float scale = (SIZE / 2f) / RANGE;
+                    for (int frame = 0; frame < FRAMES; frame++) {
+                        for (int index = 0; index < count; index++) {
+                            double angle = Math.toRadians(bearings[index]);
+                            float x = (float) (SIZE / 2f + distances[index] * scale * Math.sin(angle));
+                            float y = (float) (SIZE / 2f - distances[index] * scale * Math.cos(angle));
+                            canvas.drawCircle(x, y, 4, paint);
+                        }
+                    }
+                    separateFrame = (System.nanoTime() - start) / FRAMES;
+
+                    Log.d(TAG, count + " objects: " + batchedFrame / 1000 + "us/frame batched, "
+                            + separateFrame / 1000 + "us/frame one by one, setTargets " + setTime / 1000
+                            + "us, updateTargets of " + MOVED + " " + updateTime / 1000 + "us");
+                    assertEquals(count, view.getTargetCount());
+                }
+                assertTrue(batchedFrame < separateFrame);
+            }
+        });
+    }
+}
@@ -0,0 +1,77 @@
+package com.pcm.clockview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumentation test for the marker clustering and hit testing of {@link DistanceRangeView}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DistanceRangeViewTest {
+    private static final int SIZE = 1000;
+    private static final long TIMEOUT = 2000;
+
+    @Test
+    public void markers_areClusteredOffTheMainThreadAndHitTested() throws Exception {
+        final DistanceRangeView[] view = new DistanceRangeView[1];
+        final Canvas canvas = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                view[0] = new DistanceRangeView(InstrumentationRegistry.getTargetContext());
+                int spec = View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY);
+                view[0].measure(spec, spec);
+                view[0].layout(0, 0, SIZE, SIZE);
+                view[0].setMarkerIcon(Bitmap.createBitmap(50, 50, Bitmap.Config.ARGB_8888));
+                // two objects a meter apart straight up, one far to the right
+                view[0].setTargets(new float[]{20, 21, 30}, new float[]{0, 0, 90}, 3);
+                view[0].draw(canvas);
+            }
+        });
+
+        final int[] hits = new int[2];
+        long deadline = SystemClock.uptimeMillis() + TIMEOUT;
+        do {
+            Thread.sleep(10);
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    float center = SIZE / 2f;
+                    float scale = (center - 8) / view[0].getRange();
+                    hits[0] = view[0].findTargetAt(center, center - 20.5f * scale);
+                    hits[1] = view[0].findTargetAt(center + 30 * scale, center);
+                }
+            });
+        } while (hits[1] == -1 && SystemClock.uptimeMillis() < deadline);
+
+        assertTrue(hits[0] == 0 || hits[0] == 1);
+        assertEquals(2, hits[1]);
+
+        // a longer range moves everything closer to the center, nothing is hit where it was
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                view[0].setRange(500);
+                view[0].draw(canvas);
+            }
+        });
+        Thread.sleep(TIMEOUT / 4);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                float center = SIZE / 2f;
+                float scale = (center - 8) / 50;
+                assertEquals(-1, view[0].findTargetAt(center + 30 * scale, center));
+            }
+        });
+    }
+}
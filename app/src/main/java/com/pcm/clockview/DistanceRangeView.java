@@ -5,18 +5,120 @@ import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.RectF;
+import android.os.Process;
+import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
+import android.view.MotionEvent;
 import android.view.View;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Range and bearing plot of tracked objects around the center of the view, for
+ * thousands of objects.
+ * <p>
+ * Positions come in as primitive distance and bearing arrays and are converted in bulk
+ * into one reused screen buffer, updates rewrite only the objects that moved. Every
+ * frame draws all objects with one {@code drawPoints} call and their last movement
+ * with one {@code drawLines} call. Must be used on the main thread.
+ * <p>
+ * With a marker icon, objects closer than the icon size are merged into one marker
+ * with a count badge. Clustering runs on a background thread on a grid index of the
+ * screen positions and each result is published whole, so the drawn markers may lag
+ * the points by a frame but are never half updated.
+ */
 public class DistanceRangeView extends View {
 
     private static final String TAG = DistanceRangeView.class.getSimpleName();
-    private static final int RADIUS_METER = 50; // 50 meter
+    private static final float DEFAULT_RANGE_METER = 50; // 50 meter
+    private static final int RING_COUNT = 5;
+    private static final int SPOKE_COUNT = 12;
+    private static final float POINT_SIZE = 8;
     private static int BAG_WIDTH = 50;
     private static int BAG_HEIGHT = 50;
     private static float RADIUS = 25;
+    private static final Executor CLUSTER_EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "DistanceRangeClusters");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
     private Bitmap bagIcon;
-    private Paint paintObject, paintBack;
+    private Paint paintObject, paintBack, paintGrid, paintTrail, paintBadge, paintBadgeText;
+    private float range = DEFAULT_RANGE_METER;
+    private final RangeProjection projection = new RangeProjection();
+    private float[] distances = new float[0];
+    private float[] bearings = new float[0];
+    // x, y per object
+    private float[] points = new float[0];
+    // previous x, y and current x, y per object
+    private float[] trails = new float[0];
+    private float[] spokes = new float[SPOKE_COUNT * 4];
+    private int count;
+    private boolean trailsShown = true;
+    private OnMarkerClickListener markerClickListener;
+    private final RectF iconBounds = new RectF();
+    private final char[] badgeText = new char[11];
+    private boolean isClusteringDirty;
+
+    // positions handed to the clustering thread, guarded by itself
+    private final ClusterInput clusterInput = new ClusterInput();
+    private final AtomicBoolean isClusteringPending = new AtomicBoolean();
+    // clustering thread only
+    private final MarkerGrid markerGrid = new MarkerGrid();
+    private MarkerClusters backClusters = new MarkerClusters();
+    private long clusterVersion;
+    // latest published clusters, swapped with the buffers of either side
+    private final AtomicReference<MarkerClusters> readyClusters = new AtomicReference<>(new MarkerClusters());
+    // main thread only
+    private MarkerClusters frontClusters = new MarkerClusters();
+
+    private final Runnable clusterJob = new Runnable() {
+        @Override
+        public void run() {
+            isClusteringPending.set(false);
+            synchronized (clusterInput) {
+                markerGrid.setBounds(clusterInput.width, clusterInput.height, clusterInput.cellSize);
+                markerGrid.update(clusterInput.points, clusterInput.count);
+            }
+            markerGrid.cluster(backClusters);
+            backClusters.version = ++clusterVersion;
+            backClusters = readyClusters.getAndSet(backClusters);
+            ViewCompat.postInvalidateOnAnimation(DistanceRangeView.this);
+        }
+    };
+
+    private static final class ClusterInput {
+        float[] points = new float[0];
+        int count;
+        int width;
+        int height;
+        float cellSize;
+    }
+
+    /**
+     * Called when a marker is tapped
+     */
+    public interface OnMarkerClickListener {
+        /**
+         * @param targets : indices of the objects under the marker, {@code count} of them from {@code offset}.
+         *                Only valid during the call.
+         */
+        void onMarkerClick(int[] targets, int offset, int count);
+    }
 
     public DistanceRangeView(Context context) {
         super(context);
@@ -35,25 +137,307 @@ public class DistanceRangeView extends View {
 
     private void init() {
         paintObject = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paintObject.setColor(Color.RED);
+        paintObject.setStrokeWidth(POINT_SIZE);
+        paintObject.setStrokeCap(Paint.Cap.ROUND);
         paintBack = new Paint(Paint.ANTI_ALIAS_FLAG);
         paintBack.setColor(Color.WHITE);
+        paintGrid = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paintGrid.setColor(Color.LTGRAY);
+        paintGrid.setStyle(Paint.Style.STROKE);
+        paintGrid.setStrokeWidth(1);
+        paintTrail = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paintTrail.setColor(0x80FF0000);
+        paintTrail.setStrokeWidth(2);
+        // a trail of an object that did not move has no length, and must draw nothing
+        paintTrail.setStrokeCap(Paint.Cap.BUTT);
+        paintBadge = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paintBadge.setColor(Color.RED);
+        paintBadgeText = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paintBadgeText.setColor(Color.WHITE);
+        paintBadgeText.setTextSize(RADIUS * 0.6f);
+        paintBadgeText.setTextAlign(Paint.Align.CENTER);
+    }
+
+    /**
+     * Replaces all objects. The arrays are copied, so the caller can reuse them.
+     *
+     * @param distances : meters from the center, objects beyond the {@link #setRange(float) range} are not drawn
+     * @param bearings  : degrees clockwise from up
+     * @param count     : number of objects, the first {@code count} entries of both arrays
+     */
+    public void setTargets(float[] distances, float[] bearings, int count) {
+        ensureCapacity(count);
+        System.arraycopy(distances, 0, this.distances, 0, count);
+        System.arraycopy(bearings, 0, this.bearings, 0, count);
+        this.count = count;
+        projectAll();
+        invalidate();
+    }
+
+    /**
+     * Moves one object, only its entry is converted again
+     */
+    public void updateTarget(int index, float distance, float bearing) {
+        checkIndex(index);
+        moveTarget(index, distance, bearing);
+        isClusteringDirty = true;
+        invalidate();
+    }
+
+    /**
+     * Moves several objects at once, only their entries are converted again
+     *
+     * @param indices   : objects to move
+     * @param distances : new distance of {@code indices[i]} at {@code i}
+     * @param bearings  : new bearing of {@code indices[i]} at {@code i}
+     * @param count     : number of objects to move
+     */
+    public void updateTargets(int[] indices, float[] distances, float[] bearings, int count) {
+        for (int i = 0; i < count; i++) {
+            checkIndex(indices[i]);
+            moveTarget(indices[i], distances[i], bearings[i]);
+        }
+        isClusteringDirty = true;
+        invalidate();
+    }
+
+    public int getTargetCount() {
+        return count;
+    }
+
+    /**
+     * @param meters : distance shown from the center to the edge, 50 by default
+     */
+    public void setRange(float meters) {
+        if (meters == range) {
+            return;
+        }
+        range = meters;
+        layoutRange(getWidth(), getHeight());
+        invalidate();
+    }
+
+    public float getRange() {
+        return range;
+    }
+
+    /**
+     * @param icon : drawn {@code BAG_WIDTH} x {@code BAG_HEIGHT} for every marker, objects closer
+     *             than that are merged into one marker with a count. Null to draw points.
+     */
+    public void setMarkerIcon(Bitmap icon) {
+        bagIcon = icon;
+        isClusteringDirty = true;
+        invalidate();
+    }
+
+    public void setOnMarkerClickListener(OnMarkerClickListener listener) {
+        markerClickListener = listener;
+    }
+
+    /**
+     * Hands the current positions to the clustering thread, at most once per frame.
+     * The thread runs once for any number of requests made before it starts.
+     */
+    private void requestClusters() {
+        if (bagIcon == null || !isClusteringDirty) {
+            return;
+        }
+        isClusteringDirty = false;
+        synchronized (clusterInput) {
+            if (clusterInput.points.length < count * 2) {
+                clusterInput.points = new float[points.length];
+            }
+            System.arraycopy(points, 0, clusterInput.points, 0, count * 2);
+            clusterInput.count = count;
+            clusterInput.width = getWidth();
+            clusterInput.height = getHeight();
+            clusterInput.cellSize = Math.max(BAG_WIDTH, BAG_HEIGHT);
+        }
+        if (isClusteringPending.compareAndSet(false, true)) {
+            CLUSTER_EXECUTOR.execute(clusterJob);
+        }
+    }
+
+    /**
+     * @return the newest published clusters, never changed by the clustering thread while held
+     */
+    private MarkerClusters acquireClusters() {
+        if (readyClusters.get().version > frontClusters.version) {
+            frontClusters = readyClusters.getAndSet(frontClusters);
+        }
+        return frontClusters;
+    }
+
+    /**
+     * @return index of the object under the marker closest to {@code x, y}, -1 if there is none
+     */
+    public int findTargetAt(float x, float y) {
+        if (bagIcon == null || count == 0) {
+            return -1;
+        }
+        MarkerClusters clusters = acquireClusters();
+        int cluster = clusters.findAt(x, y, RADIUS);
+        return cluster == MarkerClusters.NONE ? -1 : clusters.members[clusters.memberStarts[cluster]];
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (markerClickListener == null || bagIcon == null) {
+            return super.onTouchEvent(event);
+        }
+        if (event.getAction() == MotionEvent.ACTION_UP && count > 0) {
+            MarkerClusters clusters = acquireClusters();
+            int cluster = clusters.findAt(event.getX(), event.getY(), RADIUS);
+            if (cluster != MarkerClusters.NONE) {
+                int start = clusters.memberStarts[cluster];
+                markerClickListener.onMarkerClick(clusters.members, start, clusters.memberStarts[cluster + 1] - start);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param shown : true to draw a line from the previous to the current position of every object
+     */
+    public void setTrailsShown(boolean shown) {
+        trailsShown = shown;
+        invalidate();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("index " + index + ", count " + count);
+        }
+    }
+
+    /**
+     * Grows the buffers to fit {@code capacity} objects, keeping their content
+     */
+    private void ensureCapacity(int capacity) {
+        if (distances.length >= capacity) {
+            return;
+        }
+        distances = copyOf(distances, capacity);
+        bearings = copyOf(bearings, capacity);
+        points = copyOf(points, capacity * 2);
+        trails = copyOf(trails, capacity * 4);
+    }
+
+    private static float[] copyOf(float[] array, int length) {
+        float[] copy = new float[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
+
+    private void moveTarget(int index, float distance, float bearing) {
+        distances[index] = distance;
+        bearings[index] = bearing;
+        float oldX = points[index * 2];
+        float oldY = points[index * 2 + 1];
+        projection.project(index, distance, bearing, points);
+        float x = points[index * 2];
+        // no trail into or out of the range
+        boolean hasTrail = oldX != RangeProjection.OUT_OF_RANGE && x != RangeProjection.OUT_OF_RANGE;
+        trails[index * 4] = hasTrail ? oldX : x;
+        trails[index * 4 + 1] = hasTrail ? oldY : points[index * 2 + 1];
+        trails[index * 4 + 2] = x;
+        trails[index * 4 + 3] = points[index * 2 + 1];
+    }
+
+    /**
+     * Converts every object, their trails start over at the current position
+     */
+    private void projectAll() {
+        projection.project(distances, bearings, 0, count, points);
+        for (int index = 0; index < count; index++) {
+            trails[index * 4] = trails[index * 4 + 2] = points[index * 2];
+            trails[index * 4 + 1] = trails[index * 4 + 3] = points[index * 2 + 1];
+        }
+        isClusteringDirty = true;
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        layoutRange(w, h);
+    }
+
+    /**
+     * Fits the range into the view and converts every object for it
+     */
+    private void layoutRange(int w, int h) {
+        float centerX = w / 2f;
+        float centerY = h / 2f;
+        float radius = Math.min(w, h) / 2f - POINT_SIZE;
+        projection.set(centerX, centerY, radius, range);
+        for (int spoke = 0; spoke < SPOKE_COUNT; spoke++) {
+            double angle = 2 * Math.PI * spoke / SPOKE_COUNT;
+            spokes[spoke * 4] = centerX;
+            spokes[spoke * 4 + 1] = centerY;
+            spokes[spoke * 4 + 2] = (float) (centerX + radius * Math.sin(angle));
+            spokes[spoke * 4 + 3] = (float) (centerY - radius * Math.cos(angle));
+        }
+        projectAll();
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
-        canvas.save();
-        int centerX = getWidth() / 2;
-        int centerY = getHeight() / 2;
-        int displayCenter = centerX;
+        float centerX = getWidth() / 2f;
+        float centerY = getHeight() / 2f;
+        float ringSpacing = range * projection.getScale() / RING_COUNT;
+        canvas.drawCircle(centerX, centerY, ringSpacing * RING_COUNT, paintBack);
+        for (int ring = 1; ring <= RING_COUNT; ring++) {
+            canvas.drawCircle(centerX, centerY, ringSpacing * ring, paintGrid);
+        }
+        canvas.drawLines(spokes, paintGrid);
 
+        if (count == 0) {
+            return;
+        }
+        if (trailsShown) {
+            canvas.drawLines(trails, 0, count * 4, paintTrail);
+        }
+        if (bagIcon == null) {
+            canvas.drawPoints(points, 0, count * 2, paintObject);
+        } else {
+            requestClusters();
+            drawMarkers(canvas, acquireClusters());
+        }
+    }
 
-        double pos = (displayCenter * 1) / RADIUS_METER;
-        float angle = (float) (Math.PI / 45f); // Need to convert to radians first
-        float startX = (float) (centerX + pos * Math.sin(angle));
-        float startY = (float) (centerY - pos * Math.cos(angle));
-
+    private void drawMarkers(Canvas canvas, MarkerClusters clusters) {
+        float badgeRadius = RADIUS * 0.5f;
+        for (int cluster = 0; cluster < clusters.count; cluster++) {
+            float x = clusters.x[cluster];
+            float y = clusters.y[cluster];
+            iconBounds.set(x - BAG_WIDTH / 2f, y - BAG_HEIGHT / 2f, x + BAG_WIDTH / 2f, y + BAG_HEIGHT / 2f);
+            canvas.drawBitmap(bagIcon, null, iconBounds, null);
+            int size = clusters.sizes[cluster];
+            if (size > 1) {
+                float badgeX = iconBounds.right - badgeRadius;
+                float badgeY = iconBounds.top + badgeRadius;
+                canvas.drawCircle(badgeX, badgeY, badgeRadius, paintBadge);
+                int length = formatCount(size);
+                canvas.drawText(badgeText, badgeText.length - length, length, badgeX,
+                        badgeY - (paintBadgeText.ascent() + paintBadgeText.descent()) / 2, paintBadgeText);
+            }
+        }
+    }
 
-        canvas.restore();
+    /**
+     * Writes {@code value} right aligned into {@code badgeText} without allocating
+     *
+     * @return number of chars written
+     */
+    private int formatCount(int value) {
+        int position = badgeText.length;
+        do {
+            badgeText[--position] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        return badgeText.length - position;
     }
-}
\ No newline at end of file
+}
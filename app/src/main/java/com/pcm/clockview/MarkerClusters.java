@@ -0,0 +1,75 @@
+package com.pcm.clockview;
+
+/**
+ * Markers of a {@link DistanceRangeView} after clustering: one marker per occupied grid
+ * cell, or per few neighbouring cells whose markers would overlap, at the mean position
+ * of the objects in it, with the indices of those objects.
+ * Filled by {@link MarkerGrid#cluster(MarkerClusters)}, the arrays only grow.
+ */
+final class MarkerClusters {
+    static final int NONE = -1;
+    // grid the clusters were made on
+    int columns;
+    int rows;
+    float cellSize;
+    // cluster per cell, or NONE; neighbouring cells may share one
+    int[] cellClusters = new int[0];
+    int count;
+    float[] x = new float[0];
+    float[] y = new float[0];
+    int[] sizes = new int[0];
+    // members of cluster i are members[memberStarts[i]] to members[memberStarts[i + 1]] (exclusive)
+    int[] memberStarts = new int[1];
+    int[] members = new int[0];
+    // increases with every clustering, to tell the newest of several buffers
+    long version;
+
+    void ensureCapacity(int cellCount, int objectCount) {
+        if (cellClusters.length < cellCount) {
+            cellClusters = new int[cellCount];
+        }
+        int clusterCount = Math.min(cellCount, objectCount);
+        if (x.length < clusterCount) {
+            x = new float[clusterCount];
+            y = new float[clusterCount];
+            sizes = new int[clusterCount];
+            memberStarts = new int[clusterCount + 1];
+        }
+        if (members.length < objectCount) {
+            members = new int[objectCount];
+        }
+    }
+
+    /**
+     * Looks at the cells within two of the cell of {@code x, y} only, a merged cluster's
+     * center is never further than a cell from a cell it holds
+     *
+     * @param radius : pixels around a cluster center that count as a hit
+     * @return the cluster closest to {@code x, y} within {@code radius}, or NONE
+     */
+    int findAt(float x, float y, float radius) {
+        if (count == 0 || cellSize <= 0) {
+            return NONE;
+        }
+        int column = (int) Math.floor(x / cellSize);
+        int row = (int) Math.floor(y / cellSize);
+        int found = NONE;
+        float closest = radius * radius;
+        for (int r = Math.max(0, row - 2); r <= Math.min(rows - 1, row + 2); r++) {
+            for (int c = Math.max(0, column - 2); c <= Math.min(columns - 1, column + 2); c++) {
+                int cluster = cellClusters[r * columns + c];
+                if (cluster == NONE) {
+                    continue;
+                }
+                float dx = this.x[cluster] - x;
+                float dy = this.y[cluster] - y;
+                float distance = dx * dx + dy * dy;
+                if (distance <= closest) {
+                    closest = distance;
+                    found = cluster;
+                }
+            }
+        }
+        return found;
+    }
+}
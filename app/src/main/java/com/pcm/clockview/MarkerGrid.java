@@ -0,0 +1,288 @@
+package com.pcm.clockview;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the screen positions of the objects of a {@link DistanceRangeView},
+ * one cell per marker size. Every cell keeps its objects in a linked list held in int
+ * arrays, so an update only relinks the objects that changed cell.
+ * <p>
+ * Clustering merges every cell, then clusters of neighbouring cells whose centers are
+ * closer than a marker, so two markers never overlap across a cell border.
+ * <p>
+ * Not thread safe, the view keeps one on its clustering thread.
+ */
+final class MarkerGrid {
+    private static final int NONE = -1;
+    private int columns;
+    private int rows;
+    private float cellSize;
+    private int[] heads = new int[0];
+    private int[] next = new int[0];
+    private int[] previous = new int[0];
+    private int[] cells = new int[0];
+    private float[] points = new float[0];
+    private int count;
+    // clustering scratch, per cluster of a cell: its cell, the cluster it merged into, its index after merging
+    private int[] clusterCells = new int[0];
+    private int[] roots = new int[0];
+    private int[] mergedIndices = new int[0];
+    private int[] memberStarts = new int[0];
+    private int[] members = new int[0];
+
+    /**
+     * Resizes the grid, every object is put in its cell again on the next update
+     */
+    void setBounds(int width, int height, float cellSize) {
+        int columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        int rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        if (columns == this.columns && rows == this.rows && cellSize == this.cellSize) {
+            return;
+        }
+        this.columns = columns;
+        this.rows = rows;
+        this.cellSize = cellSize;
+        if (heads.length < columns * rows) {
+            heads = new int[columns * rows];
+        }
+        Arrays.fill(heads, NONE);
+        Arrays.fill(cells, NONE);
+    }
+
+    /**
+     * @return cell of {@code x, y}, or NONE outside the grid
+     */
+    int cellAt(float x, float y) {
+        if (x < 0 || y < 0) {
+            return NONE;
+        }
+        int column = (int) (x / cellSize);
+        int row = (int) (y / cellSize);
+        if (column >= columns || row >= rows) {
+            return NONE;
+        }
+        return row * columns + column;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * Takes the new positions of all objects, relinking only those that moved to another cell
+     *
+     * @param points : x and y per object
+     * @param count  : number of objects, objects beyond it are dropped
+     */
+    void update(float[] points, int count) {
+        ensureCapacity(count);
+        for (int index = count; index < this.count; index++) {
+            unlink(index);
+        }
+        System.arraycopy(points, 0, this.points, 0, count * 2);
+        for (int index = 0; index < count; index++) {
+            int cell = cellAt(points[index * 2], points[index * 2 + 1]);
+            if (cell != cells[index]) {
+                unlink(index);
+                link(index, cell);
+            }
+        }
+        this.count = count;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (cells.length >= capacity) {
+            return;
+        }
+        int oldLength = cells.length;
+        next = Arrays.copyOf(next, capacity);
+        previous = Arrays.copyOf(previous, capacity);
+        cells = Arrays.copyOf(cells, capacity);
+        Arrays.fill(cells, oldLength, capacity, NONE);
+        points = Arrays.copyOf(points, capacity * 2);
+    }
+
+    private void unlink(int index) {
+        int cell = cells[index];
+        if (cell == NONE) {
+            return;
+        }
+        if (previous[index] != NONE) {
+            next[previous[index]] = next[index];
+        } else {
+            heads[cell] = next[index];
+        }
+        if (next[index] != NONE) {
+            previous[next[index]] = previous[index];
+        }
+        cells[index] = NONE;
+    }
+
+    private void link(int index, int cell) {
+        if (cell == NONE) {
+            return;
+        }
+        previous[index] = NONE;
+        next[index] = heads[cell];
+        if (heads[cell] != NONE) {
+            previous[heads[cell]] = index;
+        }
+        heads[cell] = index;
+        cells[index] = cell;
+    }
+
+    /**
+     * Merges the objects of every cell into one cluster at their mean position, then
+     * merges clusters of neighbouring cells that are closer than a cell
+     */
+    void cluster(MarkerClusters out) {
+        clusterCells(out);
+        mergeNeighbours(out);
+    }
+
+    private void clusterCells(MarkerClusters out) {
+        int cellCount = columns * rows;
+        out.ensureCapacity(cellCount, count);
+        out.columns = columns;
+        out.rows = rows;
+        out.cellSize = cellSize;
+        int clusters = 0;
+        int members = 0;
+        for (int cell = 0; cell < cellCount; cell++) {
+            out.cellClusters[cell] = MarkerClusters.NONE;
+            if (heads[cell] == NONE) {
+                continue;
+            }
+            float sumX = 0;
+            float sumY = 0;
+            int size = 0;
+            out.memberStarts[clusters] = members;
+            for (int index = heads[cell]; index != NONE; index = next[index]) {
+                out.members[members++] = index;
+                sumX += points[index * 2];
+                sumY += points[index * 2 + 1];
+                size++;
+            }
+            out.x[clusters] = sumX / size;
+            out.y[clusters] = sumY / size;
+            out.sizes[clusters] = size;
+            out.cellClusters[cell] = clusters;
+            clusters++;
+        }
+        out.memberStarts[clusters] = members;
+        out.count = clusters;
+    }
+
+    /**
+     * Every cluster, in cell order, takes in the clusters of the following neighbouring cells
+     * whose centers are closer than a cell to its own. A cluster that was taken in takes in
+     * nothing itself, so a merged center stays within a cell of the cluster that took it.
+     * The merged clusters are then packed, with their members next to each other.
+     */
+    private void mergeNeighbours(MarkerClusters out) {
+        int clusters = out.count;
+        if (roots.length < clusters) {
+            clusterCells = new int[clusters];
+            roots = new int[clusters];
+            mergedIndices = new int[clusters];
+            memberStarts = new int[clusters + 1];
+        }
+        if (members.length < out.members.length) {
+            members = new int[out.members.length];
+        }
+        for (int cell = 0; cell < columns * rows; cell++) {
+            int cluster = out.cellClusters[cell];
+            if (cluster != MarkerClusters.NONE) {
+                clusterCells[cluster] = cell;
+                roots[cluster] = cluster;
+            }
+        }
+        float mergeDistance = cellSize * cellSize;
+        boolean merged = false;
+        for (int cluster = 0; cluster < clusters; cluster++) {
+            if (roots[cluster] != cluster) {
+                continue;
+            }
+            int column = clusterCells[cluster] % columns;
+            int row = clusterCells[cluster] / columns;
+            float centerX = out.x[cluster];
+            float centerY = out.y[cluster];
+            float sumX = centerX * out.sizes[cluster];
+            float sumY = centerY * out.sizes[cluster];
+            int size = out.sizes[cluster];
+            for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+                for (int c = Math.max(0, column - 1); c <= Math.min(columns - 1, column + 1); c++) {
+                    int neighbour = out.cellClusters[r * columns + c];
+                    // clusters are in cell order, the earlier ones already had their turn
+                    if (neighbour <= cluster || roots[neighbour] != neighbour) {
+                        continue;
+                    }
+                    float dx = out.x[neighbour] - centerX;
+                    float dy = out.y[neighbour] - centerY;
+                    if (dx * dx + dy * dy < mergeDistance) {
+                        roots[neighbour] = cluster;
+                        sumX += out.x[neighbour] * out.sizes[neighbour];
+                        sumY += out.y[neighbour] * out.sizes[neighbour];
+                        size += out.sizes[neighbour];
+                        merged = true;
+                    }
+                }
+            }
+            out.x[cluster] = sumX / size;
+            out.y[cluster] = sumY / size;
+            out.sizes[cluster] = size;
+        }
+        if (!merged) {
+            return;
+        }
+
+        System.arraycopy(out.memberStarts, 0, memberStarts, 0, clusters + 1);
+        int packed = 0;
+        int memberCount = 0;
+        for (int cluster = 0; cluster < clusters; cluster++) {
+            if (roots[cluster] != cluster) {
+                continue;
+            }
+            mergedIndices[cluster] = packed;
+            out.x[packed] = out.x[cluster];
+            out.y[packed] = out.y[cluster];
+            out.sizes[packed] = out.sizes[cluster];
+            out.memberStarts[packed] = memberCount;
+            memberCount = copyMembers(out, cluster, memberCount);
+            // what it took in is in the neighbouring cells
+            int column = clusterCells[cluster] % columns;
+            int row = clusterCells[cluster] / columns;
+            for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+                for (int c = Math.max(0, column - 1); c <= Math.min(columns - 1, column + 1); c++) {
+                    int neighbour = out.cellClusters[r * columns + c];
+                    if (neighbour != MarkerClusters.NONE && neighbour != cluster && roots[neighbour] == cluster) {
+                        mergedIndices[neighbour] = packed;
+                        memberCount = copyMembers(out, neighbour, memberCount);
+                    }
+                }
+            }
+            packed++;
+        }
+        System.arraycopy(members, 0, out.members, 0, memberCount);
+        out.memberStarts[packed] = memberCount;
+        out.count = packed;
+        for (int cell = 0; cell < columns * rows; cell++) {
+            int cluster = out.cellClusters[cell];
+            if (cluster != MarkerClusters.NONE) {
+                out.cellClusters[cell] = mergedIndices[cluster];
+            }
+        }
+    }
+
+    /**
+     * Appends the members of {@code cluster} before packing to the scratch members
+     *
+     * @return member count after them
+     */
+    private int copyMembers(MarkerClusters out, int cluster, int memberCount) {
+        int start = memberStarts[cluster];
+        int length = memberStarts[cluster + 1] - start;
+        System.arraycopy(out.members, start, members, memberCount, length);
+        return memberCount + length;
+    }
+}
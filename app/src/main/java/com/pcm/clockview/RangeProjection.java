@@ -0,0 +1,74 @@
+package com.pcm.clockview;
+
+/**
+ * Converts distance and bearing of targets to screen coordinates around the center of
+ * a {@link DistanceRangeView}, in bulk into a caller owned buffer.
+ * <p>
+ * Bearings are degrees clockwise from up. Sine and cosine come from a table with a step
+ * of a tenth of a degree, off by less than a pixel at the edge of a 1000 pixel range.
+ */
+final class RangeProjection {
+    // where targets beyond the range are parked, far outside any view
+    static final float OUT_OF_RANGE = -100000;
+    private static final int STEPS_PER_DEGREE = 10;
+    private static final int STEPS = 360 * STEPS_PER_DEGREE;
+    private static final int QUARTER = STEPS / 4;
+    // one extra quarter so cos(a) = sin(a + 90) needs no wrap around
+    private static final float[] SIN = new float[STEPS + QUARTER];
+
+    static {
+        for (int step = 0; step < SIN.length; step++) {
+            SIN[step] = (float) Math.sin(Math.toRadians(step / (double) STEPS_PER_DEGREE));
+        }
+    }
+
+    private float centerX;
+    private float centerY;
+    private float range;
+    private float scale;
+
+    /**
+     * @param radius : pixels from the center to the edge of the range
+     * @param range  : meters shown from the center to the edge
+     */
+    void set(float centerX, float centerY, float radius, float range) {
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.range = range;
+        scale = range > 0 ? radius / range : 0;
+    }
+
+    /**
+     * @return pixels per meter
+     */
+    float getScale() {
+        return scale;
+    }
+
+    /**
+     * Writes x and y of targets {@code from} to {@code to} (exclusive) at {@code index * 2} of {@code out}
+     */
+    void project(float[] distances, float[] bearings, int from, int to, float[] out) {
+        for (int index = from; index < to; index++) {
+            project(index, distances[index], bearings[index], out);
+        }
+    }
+
+    /**
+     * Writes x and y of one target at {@code index * 2} of {@code out}
+     */
+    void project(int index, float distance, float bearing, float[] out) {
+        if (distance > range || distance < 0 || scale == 0) {
+            out[index * 2] = OUT_OF_RANGE;
+            out[index * 2 + 1] = OUT_OF_RANGE;
+            return;
+        }
+        int step = Math.round(bearing * STEPS_PER_DEGREE) % STEPS;
+        if (step < 0) {
+            step += STEPS;
+        }
+        float pixels = distance * scale;
+        out[index * 2] = centerX + pixels * SIN[step];
+        out[index * 2 + 1] = centerY - pixels * SIN[step + QUARTER];
+    }
+}
@@ -0,0 +1,151 @@
+package com.pcm.clockview;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the {@link MarkerGrid} index and clustering against the positions of the objects.
+ */
+public class MarkerGridTest {
+    private static final int WIDTH = 1000;
+    private static final int HEIGHT = 800;
+    private static final float CELL_SIZE = 50;
+
+    /**
+     * Every object inside the grid is in exactly one cluster, the one of its cell, and every
+     * cluster is at the mean position of its objects
+     */
+    private static void assertClusters(float[] points, int count, MarkerClusters clusters) {
+        int[] clusterOf = new int[count];
+        Arrays.fill(clusterOf, MarkerClusters.NONE);
+        for (int cluster = 0; cluster < clusters.count; cluster++) {
+            int start = clusters.memberStarts[cluster];
+            int end = clusters.memberStarts[cluster + 1];
+            assertEquals(end - start, clusters.sizes[cluster]);
+            float sumX = 0;
+            float sumY = 0;
+            for (int member = start; member < end; member++) {
+                int index = clusters.members[member];
+                assertEquals(MarkerClusters.NONE, clusterOf[index]);
+                clusterOf[index] = cluster;
+                sumX += points[index * 2];
+                sumY += points[index * 2 + 1];
+            }
+            assertEquals(sumX / (end - start), clusters.x[cluster], 0.01f);
+            assertEquals(sumY / (end - start), clusters.y[cluster], 0.01f);
+        }
+        int columns = (int) Math.ceil(WIDTH / CELL_SIZE);
+        for (int index = 0; index < count; index++) {
+            float x = points[index * 2];
+            float y = points[index * 2 + 1];
+            if (x >= 0 && y >= 0 && x < WIDTH && y < HEIGHT) {
+                int cell = (int) (y / CELL_SIZE) * columns + (int) (x / CELL_SIZE);
+                assertNotEquals(MarkerClusters.NONE, clusterOf[index]);
+                assertEquals(clusterOf[index], clusters.cellClusters[cell]);
+            } else {
+                assertEquals(MarkerClusters.NONE, clusterOf[index]);
+            }
+        }
+    }
+
+    private static void randomPoints(Random random, float[] points, int from, int to) {
+        for (int index = from; index < to; index++) {
+            points[index * 2] = random.nextFloat() * WIDTH;
+            points[index * 2 + 1] = random.nextFloat() * HEIGHT;
+        }
+    }
+
+    @Test
+    public void cluster_mergesEveryCell() throws Exception {
+        int count = 5000;
+        float[] points = new float[count * 2];
+        randomPoints(new Random(3), points, 0, count);
+        points[0] = RangeProjection.OUT_OF_RANGE;
+        points[1] = RangeProjection.OUT_OF_RANGE;
+        MarkerGrid grid = new MarkerGrid();
+        grid.setBounds(WIDTH, HEIGHT, CELL_SIZE);
+        grid.update(points, count);
+        MarkerClusters clusters = new MarkerClusters();
+        grid.cluster(clusters);
+
+        assertClusters(points, count, clusters);
+        assertEquals(count - 1, clusters.memberStarts[clusters.count]);
+    }
+
+    @Test
+    public void update_relinksMovedAndDropsRemoved() throws Exception {
+        Random random = new Random(5);
+        int count = 2000;
+        float[] points = new float[count * 2];
+        randomPoints(random, points, 0, count);
+        MarkerGrid grid = new MarkerGrid();
+        grid.setBounds(WIDTH, HEIGHT, CELL_SIZE);
+        grid.update(points, count);
+
+        for (int round = 0; round < 20; round++) {
+            int from = random.nextInt(count);
+            randomPoints(random, points, from, Math.min(count, from + 50));
+            int newCount = count - random.nextInt(100);
+            grid.update(points, newCount);
+            MarkerClusters clusters = new MarkerClusters();
+            grid.cluster(clusters);
+            assertClusters(points, newCount, clusters);
+            grid.update(points, count);
+        }
+
+        grid.setBounds(WIDTH / 2, HEIGHT, CELL_SIZE);
+        grid.update(points, count);
+        MarkerClusters clusters = new MarkerClusters();
+        grid.cluster(clusters);
+        int inside = 0;
+        for (int index = 0; index < count; index++) {
+            if (points[index * 2] < WIDTH / 2) {
+                inside++;
+            }
+        }
+        assertEquals(MarkerClusters.NONE, grid.cellAt(WIDTH - 1, 0));
+        assertEquals(inside, clusters.memberStarts[clusters.count]);
+    }
+
+    @Test
+    public void cluster_mergesCloseClustersAcrossCellBorders() throws Exception {
+        // a pair on both sides of the border between two cells, and one more a cell away from it
+        float[] points = {98, 100, 104, 100, 175, 100, 400, 400};
+        MarkerGrid grid = new MarkerGrid();
+        grid.setBounds(WIDTH, HEIGHT, CELL_SIZE);
+        grid.update(points, 4);
+        MarkerClusters clusters = new MarkerClusters();
+        grid.cluster(clusters);
+
+        assertClusters(points, 4, clusters);
+        assertEquals(3, clusters.count);
+        int pair = clusters.cellClusters[grid.cellAt(98, 100)];
+        assertEquals(pair, clusters.cellClusters[grid.cellAt(104, 100)]);
+        assertEquals(2, clusters.sizes[pair]);
+        assertEquals(101, clusters.x[pair], 0.01f);
+        assertEquals(pair, clusters.findAt(101, 100, 25));
+        assertNotEquals(pair, clusters.cellClusters[grid.cellAt(175, 100)]);
+    }
+
+    @Test
+    public void findAt_returnsTheClosestClusterInRadius() throws Exception {
+        float[] points = {100, 100, 110, 110, 400, 400};
+        MarkerGrid grid = new MarkerGrid();
+        grid.setBounds(WIDTH, HEIGHT, CELL_SIZE);
+        grid.update(points, 3);
+        MarkerClusters clusters = new MarkerClusters();
+        grid.cluster(clusters);
+
+        int pair = clusters.findAt(103, 107, 25);
+        assertNotEquals(MarkerClusters.NONE, pair);
+        assertEquals(2, clusters.sizes[pair]);
+        assertEquals(105, clusters.x[pair], 0.01f);
+        int single = clusters.findAt(390, 405, 25);
+        assertEquals(2, clusters.members[clusters.memberStarts[single]]);
+        assertEquals(MarkerClusters.NONE, clusters.findAt(250, 250, 25));
+    }
+}
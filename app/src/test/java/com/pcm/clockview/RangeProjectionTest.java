@@ -0,0 +1,67 @@
+package com.pcm.clockview;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the table based {@link RangeProjection} against the polar to screen trigonometry.
+ */
+public class RangeProjectionTest {
+    private static final float RADIUS = 500;
+    private static final float RANGE = 50;
+    private static final float TOLERANCE = 1f;
+
+    @Test
+    public void project_matchesTrig() throws Exception {
+        RangeProjection projection = new RangeProjection();
+        projection.set(RADIUS, RADIUS, RADIUS, RANGE);
+        Random random = new Random(7);
+        int count = 10000;
+        float[] distances = new float[count];
+        float[] bearings = new float[count];
+        for (int index = 0; index < count; index++) {
+            distances[index] = random.nextFloat() * RANGE;
+            bearings[index] = random.nextFloat() * 1440 - 720;
+        }
+        float[] points = new float[count * 2];
+        projection.project(distances, bearings, 0, count, points);
+
+        for (int index = 0; index < count; index++) {
+            double radians = Math.toRadians(bearings[index]);
+            float pixels = distances[index] * RADIUS / RANGE;
+            assertEquals(RADIUS + pixels * Math.sin(radians), points[index * 2], TOLERANCE);
+            assertEquals(RADIUS - pixels * Math.cos(radians), points[index * 2 + 1], TOLERANCE);
+        }
+    }
+
+    @Test
+    public void project_parksTargetsOutOfRange() throws Exception {
+        RangeProjection projection = new RangeProjection();
+        projection.set(100, 100, 100, RANGE);
+        float[] points = new float[6];
+        projection.project(0, RANGE + 1, 0, points);
+        projection.project(1, -1, 0, points);
+        projection.project(2, RANGE, 90, points);
+
+        assertEquals(RangeProjection.OUT_OF_RANGE, points[0], 0);
+        assertEquals(RangeProjection.OUT_OF_RANGE, points[3], 0);
+        assertEquals(200, points[4], TOLERANCE);
+        assertEquals(100, points[5], TOLERANCE);
+    }
+
+    @Test
+    public void project_onlyWritesTheGivenRange() throws Exception {
+        RangeProjection projection = new RangeProjection();
+        projection.set(100, 100, 100, RANGE);
+        float[] points = new float[8];
+        projection.project(new float[]{10, 10, 10, 10}, new float[]{0, 0, 0, 0}, 1, 3, points);
+
+        assertEquals(0, points[0], 0);
+        assertEquals(80, points[3], TOLERANCE);
+        assertEquals(80, points[5], TOLERANCE);
+        assertEquals(0, points[7], 0);
+    }
+}
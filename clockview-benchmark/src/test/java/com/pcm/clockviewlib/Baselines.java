@@ -0,0 +1,41 @@
+package com.pcm.clockviewlib;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checked-in limits from {@code baselines.properties}, a benchmark fails when it measures more.
+ */
+final class Baselines {
+    private static Properties sBaselines;
+
+    private Baselines() {
+    }
+
+    private static synchronized Properties load() {
+        if (sBaselines == null) {
+            sBaselines = new Properties();
+            InputStream input = Baselines.class.getResourceAsStream("/baselines.properties");
+            assertNotNull("baselines.properties is missing", input);
+            try {
+                sBaselines.load(input);
+                input.close();
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        }
+        return sBaselines;
+    }
+
+    /**
+     * Fails if {@code measured} is above the baseline stored under {@code key}
+     */
+    static void check(String key, long measured) {
+        String baseline = load().getProperty(key);
+        assertNotNull("no baseline for " + key, baseline);
+        assertTrue(key + " regressed: " + measured + " > baseline " + baseline, measured <= Long.parseLong(baseline.trim()));
+    }
+}
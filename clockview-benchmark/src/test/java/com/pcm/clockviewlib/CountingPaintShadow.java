@@ -0,0 +1,65 @@
+package com.pcm.clockviewlib;
+
+import android.graphics.Paint;
+import android.graphics.Shader;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowPaint;
+
+/**
+ * Paint shadow that counts every state change of every Paint in the process.
+ */
+@Implements(Paint.class)
+public class CountingPaintShadow extends ShadowPaint {
+    static int sMutationCount;
+
+    @Implementation
+    @Override
+    public void setColor(int color) {
+        sMutationCount++;
+        super.setColor(color);
+    }
+
+    @Implementation
+    @Override
+    public void setAlpha(int alpha) {
+        sMutationCount++;
+        super.setAlpha(alpha);
+    }
+
+    @Implementation
+    @Override
+    public void setStrokeWidth(float width) {
+        sMutationCount++;
+        super.setStrokeWidth(width);
+    }
+
+    @Implementation
+    @Override
+    public void setStyle(Paint.Style style) {
+        sMutationCount++;
+        super.setStyle(style);
+    }
+
+    @Implementation
+    @Override
+    public void setTextSize(float textSize) {
+        sMutationCount++;
+        super.setTextSize(textSize);
+    }
+
+    @Implementation
+    @Override
+    public void setTextAlign(Paint.Align align) {
+        sMutationCount++;
+        super.setTextAlign(align);
+    }
+
+    @Implementation
+    @Override
+    public Shader setShader(Shader shader) {
+        sMutationCount++;
+        return super.setShader(shader);
+    }
+}
@@ -0,0 +1,137 @@
+package com.pcm.clockviewlib;
+
+import android.view.View;
+
+import com.pcm.clockviewlib.benchmark.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Cost of one {@link ClockView#onDraw} for every face type, with and without background
+ * and digital time: time, draw and state operations, paint mutations and bytes allocated
+ * over all frames. Every frame is one second after the previous one, so the hands and
+ * the readout change as they do on a ticking clock. Also the operations to render each dial. Counts are checked against
+ * {@code baselines.properties}, times are only reported since they depend on the machine.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23, shadows = CountingPaintShadow.class)
+public class DrawBenchmarkTest {
+    private static final int SIZE = 400;
+    private static final int WARMUP_FRAMES = 500;
+    private static final int FRAMES = 5000;
+    private static final int[] FACES = {ClockView.FACE_DEFAULT, ClockView.FACE_DIGITAL, ClockView.FACE_ROMAN};
+    private static final String[] FACE_NAMES = {"default_face", "digital_face", "roman_face"};
+    // 10:08:30 UTC
+    private static final long TIME = (10 * 3600 + 8 * 60 + 30) * 1000L;
+    private static final long SECOND = 1000;
+
+    @Before
+    public void setUp() throws Exception {
+        BackgroundLoader.getInstance().clear();
+        // decodes inline, so the first frame already has its background
+        BackgroundLoader.setExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+    }
+
+    @Test
+    public void onDraw() throws Exception {
+        StringBuilder failures = new StringBuilder();
+        for (int face = 0; face < FACES.length; face++) {
+            for (int background = 0; background < 2; background++) {
+                for (int digitalTime = 0; digitalTime < 2; digitalTime++) {
+                    String key = FACE_NAMES[face] + (background == 1 ? ".background" : ".plain")
+                            + (digitalTime == 1 ? ".digital_time" : ".no_digital_time");
+                    ClockStyle style = ClockStyle.getDefault()
+                            .withFace(FACES[face])
+                            .withBackground(background == 1 ? com.pcm.clockviewlib.benchmark.R.drawable.benchmark_background : -1)
+                            .withDigitalTimeShown(digitalTime == 1);
+                    measure(key, style, failures);
+                }
+            }
+        }
+        assertTrue(failures.toString(), failures.length() == 0);
+    }
+
+    private static void measure(String key, ClockStyle style, StringBuilder failures) {
+        ClockView clockView = new ClockView(RuntimeEnvironment.application);
+        ManualTimeSource timeSource = new ManualTimeSource(TIME);
+        clockView.setTimeSource(timeSource);
+        clockView.setClockStyle(style);
+        int spec = View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY);
+        clockView.measure(spec, spec);
+        clockView.layout(0, 0, SIZE, SIZE);
+        RecordingCanvas canvas = new RecordingCanvas();
+
+        // first frame renders the dial, the rest are steady state
+        for (int frame = 0; frame < WARMUP_FRAMES; frame++) {
+            timeSource.advance(SECOND);
+            clockView.onDraw(canvas);
+        }
+        canvas.reset();
+        CountingPaintShadow.sMutationCount = 0;
+        long bytesBefore = Allocations.currentThreadBytes();
+        long start = System.nanoTime();
+        for (int frame = 0; frame < FRAMES; frame++) {
+            timeSource.advance(SECOND);
+            clockView.onDraw(canvas);
+        }
+        long nanos = (System.nanoTime() - start) / FRAMES;
+        // total, a few bytes per frame would be rounded away per frame
+        long bytes = Allocations.currentThreadBytes() - bytesBefore;
+        int drawOps = canvas.getDrawOpCount() / FRAMES;
+        int stateOps = canvas.getStateOpCount() / FRAMES;
+        int paintMutations = CountingPaintShadow.sMutationCount;
+
+        System.out.println(String.format("%-45s %8d ns/onDraw %3d draw ops %3d state ops %3d paint mutations %8.1f bytes/frame",
+                key, nanos, drawOps, stateOps, paintMutations, (double) bytes / FRAMES));
+        check(failures, key + ".draw_ops", drawOps);
+        check(failures, key + ".state_ops", stateOps);
+        check(failures, key + ".paint_mutations", paintMutations);
+        check(failures, key + ".allocated_bytes", bytes);
+    }
+
+    @Test
+    public void dialRender() throws Exception {
+        StringBuilder failures = new StringBuilder();
+        ClockGeometry geometry = new ClockGeometry();
+        geometry.setSize(SIZE);
+        RecordingCanvas canvas = new RecordingCanvas();
+        for (int face = 0; face < FACES.length; face++) {
+            ClockStyle style = ClockStyle.getDefault().withFace(FACES[face]);
+            FaceLabels labels = FaceLabels.create(style);
+            if (labels != null) {
+                labels.layout(geometry);
+            }
+            canvas.reset();
+            CountingPaintShadow.sMutationCount = 0;
+            DialCache.drawDial(canvas, geometry, style, labels);
+            String key = FACE_NAMES[face] + ".dial";
+            System.out.println(String.format("%-45s %3d draw ops %3d paint mutations",
+                    key, canvas.getDrawOpCount(), CountingPaintShadow.sMutationCount));
+            check(failures, key + ".draw_ops", canvas.getDrawOpCount());
+            check(failures, key + ".paint_mutations", CountingPaintShadow.sMutationCount);
+        }
+        assertTrue(failures.toString(), failures.length() == 0);
+    }
+
+    private static void check(StringBuilder failures, String key, long measured) {
+        try {
+            Baselines.check(key, measured);
+        } catch (AssertionError e) {
+            failures.append(e.getMessage()).append('\n');
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.pcm.clockviewlib;
+
+import org.junit.Test;
+
+import java.util.TimeZone;
+
+/**
+ * Microbenchmarks of the per-frame math, in the style of JMH: warmup iterations,
+ * then measured iterations of many operations, results consumed so the JIT cannot
+ * drop them. Reports ns per operation and fails if an operation allocates more than
+ * its baseline.
+ */
+public class MicroBenchmarkTest {
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int ITERATIONS = 10;
+    private static final int OPERATIONS = 200000;
+    // consumed results, read at the end so nothing is dead code
+    private static double sSink;
+
+    private abstract static class Benchmark {
+        final String mName;
+
+        Benchmark(String name) {
+            mName = name;
+        }
+
+        abstract double run(int operation);
+    }
+
+    private static void measure(Benchmark benchmark) {
+        double sink = 0;
+        for (int iteration = 0; iteration < WARMUP_ITERATIONS; iteration++) {
+            for (int operation = 0; operation < OPERATIONS; operation++) {
+                sink += benchmark.run(operation);
+            }
+        }
+        long best = Long.MAX_VALUE;
+        long bytes = Long.MAX_VALUE;
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            long bytesBefore = Allocations.currentThreadBytes();
+            long start = System.nanoTime();
+            for (int operation = 0; operation < OPERATIONS; operation++) {
+                sink += benchmark.run(operation);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+            bytes = Math.min(bytes, Allocations.currentThreadBytes() - bytesBefore);
+        }
+        sSink += sink;
+        System.out.println(String.format("%-45s %8.2f ns/op %5d bytes/op", benchmark.mName,
+                (double) best / OPERATIONS, bytes / OPERATIONS));
+        Baselines.check(benchmark.mName + ".allocated_bytes", bytes / OPERATIONS);
+    }
+
+    @Test
+    public void geometry() throws Exception {
+        final ClockGeometry geometry = new ClockGeometry();
+        geometry.setSize(400);
+        measure(new Benchmark("ClockGeometry.unitX") {
+            @Override
+            double run(int operation) {
+                return ClockGeometry.unitX(operation * 0.37f);
+            }
+        });
+        measure(new Benchmark("ClockGeometry.getX") {
+            @Override
+            double run(int operation) {
+                return geometry.getX(operation % 720 * 0.5f, geometry.getSecondHandLength());
+            }
+        });
+        measure(new Benchmark("ClockGeometry.setSize") {
+            @Override
+            double run(int operation) {
+                geometry.setSize(200 + operation % 400);
+                return geometry.getTicks()[0];
+            }
+        });
+    }
+
+    @Test
+    public void time() throws Exception {
+        final ClockTime clockTime = new ClockTime(TimeZone.getTimeZone("Europe/London"));
+        final long start = 1490400000000L;
+        measure(new Benchmark("ClockTime.set") {
+            @Override
+            double run(int operation) {
+                clockTime.set(start + operation * 1000L);
+                return clockTime.getSecondAngle();
+            }
+        });
+    }
+
+    @Test
+    public void timeFormatter() throws Exception {
+        final TimeFormatter formatter = new TimeFormatter();
+        final ClockTime clockTime = new ClockTime(TimeZone.getTimeZone("UTC"));
+        measure(new Benchmark("TimeFormatter.format") {
+            @Override
+            double run(int operation) {
+                clockTime.set(operation * 1000L);
+                return formatter.format(clockTime);
+            }
+        });
+        formatter.set24Hour(false);
+        measure(new Benchmark("TimeFormatter.format.12_hour") {
+            @Override
+            double run(int operation) {
+                clockTime.set(operation * 1000L);
+                return formatter.format(clockTime);
+            }
+        });
+    }
+}
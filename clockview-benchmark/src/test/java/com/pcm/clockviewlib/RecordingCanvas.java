@@ -0,0 +1,121 @@
+package com.pcm.clockviewlib;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * Canvas that draws nothing and counts the calls made to it: draw operations and
+ * matrix / clip / save state operations. Counting allocates nothing.
+ */
+class RecordingCanvas extends Canvas {
+    private int mDrawOpCount;
+    private int mStateOpCount;
+    private int mSaveCount = 1;
+
+    void reset() {
+        mDrawOpCount = 0;
+        mStateOpCount = 0;
+    }
+
+    int getDrawOpCount() {
+        return mDrawOpCount;
+    }
+
+    int getStateOpCount() {
+        return mStateOpCount;
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+        mDrawOpCount++;
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, Rect src, RectF dst, Paint paint) {
+        mDrawOpCount++;
+    }
+
+    @Override
+    public void drawText(char[] text, int index, int count, float x, float y, Paint paint) {
+        mDrawOpCount++;
+    }
+
+    @Override
+    public void drawText(String text, float x, float y, Paint paint) {
+        mDrawOpCount++;
+    }
+
+    @Override
+    public void drawPath(Path path, Paint paint) {
+        mDrawOpCount++;
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) {
+        mDrawOpCount++;
+    }
+
+    @Override
+    public void drawLines(float[] points, int offset, int count, Paint paint) {
+        mDrawOpCount++;
+    }
+
+    @Override
+    public void drawLines(float[] points, Paint paint) {
+        mDrawOpCount++;
+    }
+
+    @Override
+    public void drawPoints(float[] points, int offset, int count, Paint paint) {
+        mDrawOpCount++;
+    }
+
+    @Override
+    public void drawCircle(float cx, float cy, float radius, Paint paint) {
+        mDrawOpCount++;
+    }
+
+    @Override
+    public void drawColor(int color, PorterDuff.Mode mode) {
+        mDrawOpCount++;
+    }
+
+    @Override
+    public int save() {
+        mStateOpCount++;
+        return mSaveCount++;
+    }
+
+    @Override
+    public void restore() {
+        mStateOpCount++;
+        mSaveCount--;
+    }
+
+    @Override
+    public void restoreToCount(int saveCount) {
+        mStateOpCount++;
+        mSaveCount = saveCount;
+    }
+
+    @Override
+    public void translate(float dx, float dy) {
+        mStateOpCount++;
+    }
+
+    @Override
+    public void rotate(float degrees) {
+        mStateOpCount++;
+    }
+
+    @Override
+    public boolean clipRect(Rect rect) {
+        mStateOpCount++;
+        return true;
+    }
+}
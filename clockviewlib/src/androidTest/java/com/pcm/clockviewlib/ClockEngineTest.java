@@ -0,0 +1,148 @@
+package com.pcm.clockviewlib;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives the wallpaper engine through the callbacks the system makes, on a fake surface.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ClockEngineTest {
+    private static final int WIDTH = 720;
+    private static final int HEIGHT = 1280;
+    // long enough for at least one frame per wall-clock second
+    private static final long WAIT = 2500;
+
+    private final Instrumentation mInstrumentation = InstrumentationRegistry.getInstrumentation();
+    private final FakeSurfaceHolder mHolder = new FakeSurfaceHolder(WIDTH, HEIGHT);
+    private ClockWallpaperService.ClockEngine mEngine;
+
+    /**
+     * Service that is not bound by the system, running on the test app's context
+     */
+    private static final class TestService extends ClockWallpaperService {
+        TestService(Context context) {
+            attachBaseContext(context);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                TestService service = new TestService(InstrumentationRegistry.getTargetContext());
+                mEngine = service.new ClockEngine();
+                mEngine.onCreate(mHolder);
+                mEngine.onPowerSaveModeChanged(false);
+                createSurface();
+                mEngine.onVisibilityChanged(true);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mEngine.onDestroy();
+            }
+        });
+    }
+
+    private void createSurface() {
+        mEngine.onSurfaceCreated(mHolder);
+        mEngine.onSurfaceChanged(mHolder, 0, WIDTH, HEIGHT);
+    }
+
+    private int getLockCount() {
+        final int[] count = new int[1];
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                count[0] = mHolder.lockCount;
+            }
+        });
+        return count[0];
+    }
+
+    @Test
+    public void visible_drawsEverySecond() throws Exception {
+        int locks = getLockCount();
+        Thread.sleep(WAIT);
+        assertTrue(getLockCount() >= locks + 2);
+    }
+
+    @Test
+    public void hidden_stopsDrawing() throws Exception {
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mEngine.onVisibilityChanged(false);
+            }
+        });
+        int locks = getLockCount();
+        Thread.sleep(WAIT);
+        assertEquals(locks, getLockCount());
+    }
+
+    @Test
+    public void newSurface_keepsDrawingWithoutAVisibilityChange() throws Exception {
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mEngine.onSurfaceDestroyed(mHolder);
+            }
+        });
+        int locks = getLockCount();
+        Thread.sleep(WAIT);
+        assertEquals(locks, getLockCount());
+
+        // the system reports no visibility for the new surface, the wallpaper stayed visible
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                createSurface();
+            }
+        });
+        locks = getLockCount();
+        Thread.sleep(WAIT);
+        assertTrue(getLockCount() >= locks + 2);
+    }
+
+    @Test
+    public void powerSave_drawsOncePerMinute() throws Exception {
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mEngine.onPowerSaveModeChanged(true);
+            }
+        });
+        assertTrue(mEngine.getClock().isLowPowerMode());
+        int locks = getLockCount();
+        Thread.sleep(WAIT);
+        // at most the frame right after a minute boundary
+        assertTrue(getLockCount() <= locks + 1);
+
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mEngine.onPowerSaveModeChanged(false);
+            }
+        });
+        assertFalse(mEngine.getClock().isLowPowerMode());
+        locks = getLockCount();
+        Thread.sleep(WAIT);
+        assertTrue(getLockCount() >= locks + 2);
+    }
+}
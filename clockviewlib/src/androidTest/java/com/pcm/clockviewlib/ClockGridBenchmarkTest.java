@@ -0,0 +1,91 @@
+package com.pcm.clockviewlib;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Benchmark of one {@link ClockGridView} against the same number of {@link ClockView}s,
+ * frame time and heap, results in logcat.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ClockGridBenchmarkTest {
+    private static final String TAG = ClockGridBenchmarkTest.class.getSimpleName();
+    private static final int CLOCK_COUNT = 60;
+    private static final int COLUMNS = 10;
+    private static final int CELL_SIZE = 100;
+    private static final int FRAMES = 50;
+
+    @Test
+    public void grid_drawsFasterThanSeparateViews() throws Exception {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+                String[] ids = TimeZone.getAvailableIDs();
+                int width = COLUMNS * CELL_SIZE;
+                int height = (CLOCK_COUNT / COLUMNS) * CELL_SIZE;
+                Canvas canvas = new Canvas(Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888));
+                Runtime runtime = Runtime.getRuntime();
+
+                runtime.gc();
+                long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+                ClockView[] clockViews = new ClockView[CLOCK_COUNT];
+                int spec = View.MeasureSpec.makeMeasureSpec(CELL_SIZE, View.MeasureSpec.EXACTLY);
+                for (int index = 0; index < CLOCK_COUNT; index++) {
+                    clockViews[index] = new ClockView(context);
+                    clockViews[index].setTimeZone(TimeZone.getTimeZone(ids[index * 7 % ids.length]));
+                    clockViews[index].measure(spec, spec);
+                    clockViews[index].layout(0, 0, CELL_SIZE, CELL_SIZE);
+                }
+                long viewsStart = System.nanoTime();
+                for (int frame = 0; frame < FRAMES; frame++) {
+                    for (int index = 0; index < CLOCK_COUNT; index++) {
+                        int saveCount = canvas.save();
+                        canvas.translate(index % COLUMNS * CELL_SIZE, index / COLUMNS * CELL_SIZE);
+                        clockViews[index].draw(canvas);
+                        canvas.restoreToCount(saveCount);
+                    }
+                }
+                long viewsFrame = (System.nanoTime() - viewsStart) / FRAMES;
+                runtime.gc();
+                long viewsHeap = runtime.totalMemory() - runtime.freeMemory() - heapBefore;
+
+                runtime.gc();
+                heapBefore = runtime.totalMemory() - runtime.freeMemory();
+                ClockGridView grid = new ClockGridView(context);
+                grid.setColumnCount(COLUMNS);
+                for (int index = 0; index < CLOCK_COUNT; index++) {
+                    String id = ids[index * 7 % ids.length];
+                    grid.addClock(TimeZone.getTimeZone(id), id);
+                }
+                grid.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                        View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+                grid.layout(0, 0, width, height);
+                long gridStart = System.nanoTime();
+                for (int frame = 0; frame < FRAMES; frame++) {
+                    grid.draw(canvas);
+                }
+                long gridFrame = (System.nanoTime() - gridStart) / FRAMES;
+                runtime.gc();
+                long gridHeap = runtime.totalMemory() - runtime.freeMemory() - heapBefore;
+
+                Log.d(TAG, CLOCK_COUNT + " ClockViews: " + viewsFrame / 1000 + "us/frame, " + viewsHeap / 1024 + "KB heap");
+                Log.d(TAG, "ClockGridView of " + CLOCK_COUNT + ": " + gridFrame / 1000 + "us/frame, " + gridHeap / 1024 + "KB heap");
+                assertEquals(CLOCK_COUNT, grid.getClockCount());
+                assertTrue(gridFrame < viewsFrame);
+            }
+        });
+    }
+}
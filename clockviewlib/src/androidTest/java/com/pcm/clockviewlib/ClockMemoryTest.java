@@ -0,0 +1,135 @@
+package com.pcm.clockviewlib;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumentation test for dropping and rebuilding the clock bitmaps under memory pressure.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ClockMemoryTest {
+    private static final int SIZE = 400;
+    private static final long TIME = 1500000000000L;
+
+    private static ClockView createClockView(ClockStyle style) {
+        ClockView clockView = new ClockView(InstrumentationRegistry.getTargetContext());
+        clockView.setClockStyle(style);
+        clockView.setTimeSource(new ManualTimeSource(TIME));
+        int spec = View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY);
+        clockView.measure(spec, spec);
+        clockView.layout(0, 0, SIZE, SIZE);
+        return clockView;
+    }
+
+    @After
+    public void tearDown() {
+        // the executor is process wide, later tests decode off the main thread again
+        BackgroundLoader.resetExecutor();
+    }
+
+    @Test
+    public void trimMemory_dropsEveryBitmapAndRedrawsTheSame() throws Exception {
+        final ArrayList<Runnable> decodes = new ArrayList<>();
+        BackgroundLoader.getInstance().clear();
+        BackgroundLoader.setExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                decodes.add(command);
+            }
+        });
+        // a look no other test uses, so its dial is only held by this clock
+        final ClockStyle style = ClockStyle.getDefault().withFaceColor(0xFF123456)
+                .withBackground(com.pcm.clockviewlib.test.R.drawable.test_clock_background);
+        final ClockView[] clockView = new ClockView[1];
+        final Bitmap before = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        final Bitmap after = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        final long[] dialBytesBefore = new long[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                dialBytesBefore[0] = ClockMetrics.sDialBytes.get();
+                clockView[0] = createClockView(style);
+                clockView[0].draw(new Canvas(before));
+            }
+        });
+        runDecodes(decodes);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                clockView[0].draw(new Canvas(before));
+                assertTrue(style.getDialCache().contains(SIZE));
+                assertTrue(ClockMetrics.sBackgroundBytes.get() > 0);
+
+                // running in front, the decoded background is kept for the next dial
+                trimMemory(clockView[0], ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+                assertTrue(ClockMetrics.sBackgroundBytes.get() > 0);
+
+                trimMemory(clockView[0], ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+                assertFalse(style.getDialCache().contains(SIZE));
+                assertEquals(dialBytesBefore[0], ClockMetrics.sDialBytes.get());
+                assertEquals(0, ClockMetrics.sBackgroundBytes.get());
+
+                // rebuilt as on first use: plain, the background is decoded off the main thread
+                clockView[0].draw(new Canvas(after));
+                assertFalse(after.sameAs(before));
+                assertEquals(1, decodes.size());
+            }
+        });
+        runDecodes(decodes);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                clockView[0].draw(new Canvas(after));
+                assertTrue(after.sameAs(before));
+            }
+        });
+    }
+
+    /**
+     * Trims like the system does: the shared caches once for the process, then the clock's own dial
+     */
+    private static void trimMemory(ClockView clockView, int level) {
+        ClockMemory.trimCaches(level);
+        clockView.trimMemory(level);
+    }
+
+    /**
+     * Runs the queued background decodes and waits for their results to reach the dial
+     */
+    private static void runDecodes(ArrayList<Runnable> decodes) {
+        for (Runnable decode : decodes) {
+            decode.run();
+        }
+        decodes.clear();
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+    }
+
+    @Test
+    public void opaqueDial_usesHalfTheMemory() throws Exception {
+        ClockStyle style = ClockStyle.getDefault().withFaceColor(0xFF654321);
+        ClockStyle opaque = style.withOpaqueDial(Color.WHITE);
+        assertEquals(Bitmap.Config.RGB_565, opaque.getDialBitmapConfig());
+        assertEquals(opaque, style.withOpaqueDial(Color.WHITE));
+
+        Bitmap dial = style.getDialCache().acquire(InstrumentationRegistry.getTargetContext().getResources(), SIZE, null).getBitmap();
+        Bitmap opaqueDial = opaque.getDialCache().acquire(InstrumentationRegistry.getTargetContext().getResources(), SIZE, null).getBitmap();
+        assertEquals(dial.getByteCount() / 2, opaqueDial.getByteCount());
+        assertEquals(Color.WHITE, opaqueDial.getPixel(0, 0));
+        style.getDialCache().release(SIZE, null);
+        opaque.getDialCache().release(SIZE, null);
+    }
+}
@@ -0,0 +1,165 @@
+package com.pcm.clockviewlib;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.RectF;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumentation test for rendering clocks without a view, on worker threads.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ClockRendererTest {
+    private static final int SIZE = 200;
+    private static final int THREADS = 4;
+    // 10:08:30 UTC
+    private static final long TIME = (10 * 3600 + 8 * 60 + 30) * 1000L;
+
+    private static Bitmap render(ClockStyle style, long time) {
+        Context context = InstrumentationRegistry.getTargetContext();
+        ClockRenderer renderer = new ClockRenderer(context.getResources(), style);
+        renderer.setTimeZone(TimeZone.getTimeZone("UTC"));
+        Bitmap bitmap = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        renderer.draw(new Canvas(bitmap), SIZE, style, time);
+        renderer.release();
+        return bitmap;
+    }
+
+    @After
+    public void tearDown() {
+        // the executor is process wide, later tests decode off the main thread again
+        BackgroundLoader.resetExecutor();
+    }
+
+    @Test
+    public void concurrentRenderers_matchSingleThreadedOutput() throws Exception {
+        final ClockStyle style = ClockStyle.getDefault().withFace(ClockView.FACE_ROMAN);
+        Bitmap expected = render(style, TIME);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            Future<?>[] results = new Future<?>[THREADS * 4];
+            for (int index = 0; index < results.length; index++) {
+                results[index] = executor.submit(new Callable<Bitmap>() {
+                    @Override
+                    public Bitmap call() throws Exception {
+                        return render(style, TIME);
+                    }
+                });
+            }
+            for (Future<?> result : results) {
+                assertTrue(expected.sameAs((Bitmap) result.get()));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void renderFrames_reusesPooledBitmaps() throws Exception {
+        ClockRenderer renderer = new ClockRenderer(InstrumentationRegistry.getTargetContext());
+        renderer.setSize(SIZE);
+        ClockBitmapPool pool = new ClockBitmapPool(4);
+        long[] timestamps = {TIME, TIME + 1000, TIME + 2000, TIME + 3000};
+
+        Bitmap[] frames = renderer.renderFrames(timestamps, pool);
+        assertEquals(4, frames.length);
+        assertFalse(frames[0].sameAs(frames[1]));
+        for (Bitmap frame : frames) {
+            pool.recycle(frame);
+        }
+
+        int allocations = DialCache.sBitmapAllocationCount.get();
+        frames = renderer.renderFrames(timestamps, pool);
+        assertEquals(allocations, DialCache.sBitmapAllocationCount.get());
+        assertEquals(0, pool.getPooledCount());
+        renderer.release();
+    }
+
+    @Test
+    public void offMainRenderer_completesADialAcquiredPlainOnTheMainThread() throws Exception {
+        BackgroundLoader.getInstance().clear();
+        // the async decode never runs, only the renderer can complete the dial
+        BackgroundLoader.setExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+            }
+        });
+        final ClockStyle style = ClockStyle.getDefault().withFaceColor(0xFF224466)
+                .withBackground(com.pcm.clockviewlib.test.R.drawable.test_clock_background);
+        final DialCache.Dial[] dial = new DialCache.Dial[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                dial[0] = style.getDialCache().acquire(InstrumentationRegistry.getTargetContext().getResources(), SIZE, null);
+            }
+        });
+        Bitmap plain = dial[0].getBitmap();
+        Bitmap plainCopy = plain.copy(Bitmap.Config.ARGB_8888, false);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Bitmap rendered = executor.submit(new Callable<Bitmap>() {
+                @Override
+                public Bitmap call() throws Exception {
+                    return render(style, TIME);
+                }
+            }).get();
+            Bitmap plainRendered = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+            new Canvas(plainRendered).drawBitmap(plainCopy, 0, 0, null);
+            assertFalse(plainRendered.sameAs(rendered));
+        } finally {
+            executor.shutdown();
+        }
+        // swapped, the plain dial was not drawn over or recycled under anyone drawing it
+        assertNotSame(plain, dial[0].getBitmap());
+        assertFalse(plain.isRecycled());
+        assertTrue(plain.sameAs(plainCopy));
+        style.getDialCache().release(SIZE, null);
+    }
+
+    @Test
+    public void dirtyArea_perTickIsAFifthOfTheClockAtMost() throws Exception {
+        // the readout has a fixed text size, so it takes a larger part of smaller clocks
+        int size = 400;
+        Canvas canvas = new Canvas(Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888));
+        RectF dirtyBounds = new RectF();
+        for (int face : new int[]{ClockView.FACE_DEFAULT, ClockView.FACE_DIGITAL, ClockView.FACE_ROMAN}) {
+            // the readout with seconds changes on every tick as well
+            ClockStyle style = ClockStyle.getDefault().withFace(face).withDigitalTimeShown(true).withSecondsShown(true);
+            ClockRenderer renderer = new ClockRenderer(InstrumentationRegistry.getTargetContext().getResources(), style);
+            renderer.setTimeZone(TimeZone.getTimeZone("UTC"));
+            renderer.setSize(size);
+            renderer.draw(canvas, TIME);
+            double area = 0;
+            // one minute of 1 Hz ticks, the minute and hour hands move once
+            for (int tick = 1; tick <= 60; tick++) {
+                long time = TIME + tick * 1000L;
+                dirtyBounds.setEmpty();
+                assertTrue(renderer.getDirtyBounds(time, dirtyBounds));
+                if (dirtyBounds.intersect(0, 0, size, size)) {
+                    area += dirtyBounds.width() * dirtyBounds.height();
+                }
+                renderer.draw(canvas, time);
+            }
+            double share = area / 60 / ((double) size * size);
+            assertTrue("face " + face + ": " + Math.round(share * 100) + "% per tick", share <= 0.2);
+            renderer.release();
+        }
+    }
+}
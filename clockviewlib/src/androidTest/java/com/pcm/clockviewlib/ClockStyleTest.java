@@ -0,0 +1,92 @@
+package com.pcm.clockviewlib;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumentation test for sharing one {@link ClockStyle} between many clocks.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ClockStyleTest {
+    private static final String TAG = ClockStyleTest.class.getSimpleName();
+    private static final int CLOCK_COUNT = 40;
+    private static final int SIZE = 300;
+
+    @After
+    public void tearDown() {
+        // the executor is process wide, later tests decode off the main thread again
+        BackgroundLoader.resetExecutor();
+    }
+
+    @Test
+    public void identicalClocks_shareStyleAndDial() throws Exception {
+        BackgroundLoader.getInstance().clear();
+        BackgroundLoader.setExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+                ClockStyle style = ClockStyle.getDefault().withBackground(com.pcm.clockviewlib.test.R.drawable.test_clock_background);
+                Canvas canvas = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+                int spec = View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY);
+                ClockView[] clockViews = new ClockView[CLOCK_COUNT];
+
+                Runtime runtime = Runtime.getRuntime();
+                runtime.gc();
+                long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+                int allocationsBefore = DialCache.sBitmapAllocationCount.get();
+                long start = System.nanoTime();
+                for (int index = 0; index < CLOCK_COUNT; index++) {
+                    ClockView clockView = new ClockView(context);
+                    clockView.setClockStyle(style.withFaceColor(0xFF000000));
+                    clockView.measure(spec, spec);
+                    clockView.layout(0, 0, SIZE, SIZE);
+                    clockView.draw(canvas);
+                    clockViews[index] = clockView;
+                }
+                long elapsed = System.nanoTime() - start;
+                runtime.gc();
+                long heap = runtime.totalMemory() - runtime.freeMemory() - heapBefore;
+                Log.d(TAG, CLOCK_COUNT + " clocks: " + elapsed / 1000 + "us, " + heap / 1024 + "KB heap");
+
+                for (ClockView clockView : clockViews) {
+                    assertSame(clockViews[0].getClockStyle(), clockView.getClockStyle());
+                }
+                // one dial and one decoded background for all of them, and the dial rendered
+                // again with the background if the decode finished while they were created
+                assertTrue(DialCache.sBitmapAllocationCount.get() - allocationsBefore <= 3);
+                // far less than one full size dial per clock
+                assertTrue(heap < (long) CLOCK_COUNT * SIZE * SIZE * 4 / 4);
+            }
+        });
+    }
+
+    @Test
+    public void with_returnsNewSharedInstance() throws Exception {
+        ClockStyle style = ClockStyle.getDefault();
+        ClockStyle changed = style.withFaceColor(0xFF123456);
+
+        assertNotSame(style, changed);
+        assertEquals(0xFF123456, changed.getFaceColor());
+        assertEquals(ClockStyle.getDefault().getFaceColor(), style.getFaceColor());
+        assertSame(changed, ClockStyle.getDefault().withFaceColor(0xFF123456));
+    }
+}
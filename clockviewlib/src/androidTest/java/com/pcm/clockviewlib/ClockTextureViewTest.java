@@ -0,0 +1,125 @@
+package com.pcm.clockviewlib;
+
+import android.app.Instrumentation;
+import android.content.Intent;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumentation test for the render thread of {@link ClockTextureView} in a real window.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ClockTextureViewTest {
+    private static final int SWEEP_FPS = 30;
+    private static final long BLOCK_MILLIS = 1000;
+
+    private final Instrumentation mInstrumentation = InstrumentationRegistry.getInstrumentation();
+    private TestActivity mActivity;
+    private ClockTextureView mClockView;
+
+    @Before
+    public void setUp() throws Exception {
+        Intent intent = new Intent(InstrumentationRegistry.getTargetContext(), TestActivity.class)
+                .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        mActivity = (TestActivity) mInstrumentation.startActivitySync(intent);
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mClockView = new ClockTextureView(mActivity);
+                mClockView.setSweepFps(SWEEP_FPS);
+                mClockView.setSweepMode(true);
+                mActivity.setContentView(mClockView);
+            }
+        });
+        long timeout = SystemClock.uptimeMillis() + 5000;
+        while (mClockView.getFrameCount() == 0) {
+            assertTrue("no frame drawn", SystemClock.uptimeMillis() < timeout);
+            Thread.sleep(10);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        mActivity.finish();
+    }
+
+    @Test
+    public void blockedMainThread_framesKeepComing() throws Exception {
+        final long[] frames = new long[2];
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                frames[0] = mClockView.getFrameCount();
+                SystemClock.sleep(BLOCK_MILLIS);
+                frames[1] = mClockView.getFrameCount();
+            }
+        });
+        // sweeping at 30 fps, at least half of them while the main thread did nothing else
+        long expected = SWEEP_FPS * BLOCK_MILLIS / 1000 / 2;
+        assertTrue((frames[1] - frames[0]) + " frames", frames[1] - frames[0] >= expected);
+    }
+
+    @Test
+    public void hidden_stopsRenderingUntilShownAgain() throws Exception {
+        setVisibility(View.GONE);
+        // a frame already scheduled may still come
+        Thread.sleep(200);
+        long frames = mClockView.getFrameCount();
+        long missed = mClockView.getMissedFrameCount();
+        Thread.sleep(BLOCK_MILLIS);
+        assertEquals(frames, mClockView.getFrameCount());
+
+        setVisibility(View.VISIBLE);
+        Thread.sleep(BLOCK_MILLIS);
+        assertTrue(mClockView.getFrameCount() - frames >= SWEEP_FPS * BLOCK_MILLIS / 1000 / 2);
+        // the pause is not counted as missed frames
+        assertTrue(mClockView.getMissedFrameCount() - missed < SWEEP_FPS * BLOCK_MILLIS / 1000);
+    }
+
+    private void setVisibility(final int visibility) {
+        mInstrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                mClockView.setVisibility(visibility);
+            }
+        });
+    }
+
+    @Test
+    public void slowFrame_isReportedAsMissed() throws Exception {
+        final CountDownLatch missed = new CountDownLatch(1);
+        mClockView.setOnFrameMissedListener(new ClockTextureView.OnFrameMissedListener() {
+            @Override
+            public void onFrameMissed(int missedFrames) {
+                // called on the render thread
+                missed.countDown();
+            }
+        });
+        final CountDownLatch stalled = new CountDownLatch(1);
+        // read on the render thread, stalls one frame for several frame intervals
+        mClockView.setTimeSource(new TimeSource() {
+            @Override
+            public long currentTimeMillis() {
+                if (stalled.getCount() > 0) {
+                    stalled.countDown();
+                    SystemClock.sleep(5 * 1000 / SWEEP_FPS);
+                }
+                return System.currentTimeMillis();
+            }
+        });
+        assertTrue(missed.await(5, TimeUnit.SECONDS));
+        assertTrue(mClockView.getMissedFrameCount() > 0);
+    }
+}
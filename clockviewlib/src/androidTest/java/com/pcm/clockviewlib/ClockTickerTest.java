@@ -0,0 +1,114 @@
+package com.pcm.clockviewlib;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumentation test for the screen and ambient aware update policy of {@link ClockTicker}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ClockTickerTest {
+
+    @Test
+    public void screenOn_ticksEveryListenerAtOnce() throws Exception {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+                ClockTicker ticker = ClockTicker.getInstance();
+                final AtomicInteger seconds = new AtomicInteger();
+                final AtomicInteger minutes = new AtomicInteger();
+                ClockTicker.OnTickListener secondListener = new ClockTicker.OnTickListener() {
+                    @Override
+                    public void onTick(boolean resumed) {
+                        assertTrue(resumed);
+                        seconds.incrementAndGet();
+                    }
+                };
+                ClockTicker.OnTickListener minuteListener = new ClockTicker.OnTickListener() {
+                    @Override
+                    public void onTick(boolean resumed) {
+                        assertTrue(resumed);
+                        minutes.incrementAndGet();
+                    }
+                };
+                int listenersBefore = ticker.getListenerCount();
+                ticker.register(context, secondListener, false);
+                ticker.register(context, minuteListener, true);
+                ticker.register(context, minuteListener, true);
+                assertEquals(listenersBefore + 2, ticker.getListenerCount());
+
+                ticker.setScreenOn(false);
+                ticker.setScreenOn(true);
+                assertEquals(1, seconds.get());
+                assertEquals(1, minutes.get());
+
+                // moving to the other rate does not add it twice
+                ticker.register(context, minuteListener, false);
+                assertEquals(listenersBefore + 2, ticker.getListenerCount());
+                ticker.unregister(secondListener);
+                ticker.unregister(minuteListener);
+                assertEquals(listenersBefore, ticker.getListenerCount());
+            }
+        });
+    }
+
+    @Test
+    public void timeZoneChange_isFollowedUnlessAZoneWasSet() throws Exception {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getTargetContext();
+                ClockTicker ticker = ClockTicker.getInstance();
+                TimeZone original = TimeZone.getDefault();
+                final ClockRenderer following = new ClockRenderer(context);
+                final ClockRenderer fixed = new ClockRenderer(context);
+                fixed.setTimeZone(TimeZone.getTimeZone("Asia/Tokyo"));
+                Runnable listener = new Runnable() {
+                    @Override
+                    public void run() {
+                        following.updateDefaultTimeZone();
+                        fixed.updateDefaultTimeZone();
+                    }
+                };
+                ticker.registerTimeZoneListener(context, listener);
+                try {
+                    TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+                    ticker.onTimeZoneChanged();
+                    assertEquals("America/New_York", following.getTimeZone().getID());
+                    assertEquals("Asia/Tokyo", fixed.getTimeZone().getID());
+
+                    // null goes back to following the device
+                    fixed.setTimeZone(null);
+                    assertEquals("America/New_York", fixed.getTimeZone().getID());
+                } finally {
+                    ticker.unregisterTimeZoneListener(listener);
+                    TimeZone.setDefault(original);
+                }
+            }
+        });
+    }
+
+    @Test
+    public void ambientStyle_isGrayWithoutSeconds() throws Exception {
+        ClockStyle style = ClockStyle.getDefault().withSecondHandColor(Color.RED).withSecondsShown(true);
+        ClockStyle ambient = style.toAmbient();
+
+        int color = ambient.getSecondHandColor();
+        assertEquals(Color.red(color), Color.green(color));
+        assertEquals(Color.green(color), Color.blue(color));
+        assertFalse(ambient.isSecondsShown());
+        assertEquals(-1, ambient.getBackgroundId());
+        assertSame(ambient, style.toAmbient());
+    }
+}
@@ -0,0 +1,135 @@
+package com.pcm.clockviewlib;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumentation test for {@link ClockView#setClockTime(long)} fed from background threads.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ClockTimeFeedTest {
+    private static final int SIZE = 400;
+    private static final int WRITER_COUNT = 4;
+    private static final int UPDATES_PER_WRITER = 20000;
+    private static final long BASE_TIME = 1500000000000L;
+    // every update is a whole second, so the hands move with each one
+    private static final long STEP = 1000;
+
+    private static ClockView createClockView() {
+        final ClockView[] clockView = new ClockView[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                clockView[0] = new ClockView(InstrumentationRegistry.getTargetContext());
+                clockView[0].setClockStyle(ClockStyle.getDefault().withDigitalTimeShown(true).withSecondsShown(true));
+                clockView[0].setMetricsEnabled(true);
+                int spec = View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY);
+                clockView[0].measure(spec, spec);
+                clockView[0].layout(0, 0, SIZE, SIZE);
+            }
+        });
+        return clockView[0];
+    }
+
+    @Test
+    public void concurrentUpdates_drawOnlyWrittenTimesAndCoalesce() throws Exception {
+        final ClockView clockView = createClockView();
+        clockView.setClockTimeInterpolated(false);
+        clockView.setClockTime(BASE_TIME);
+        final Canvas canvas = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(WRITER_COUNT);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        for (int writer = 0; writer < WRITER_COUNT; writer++) {
+            final long firstTime = BASE_TIME + writer * UPDATES_PER_WRITER * STEP;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int index = 0; index < UPDATES_PER_WRITER; index++) {
+                            clockView.setClockTime(firstTime + index * STEP);
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }, "ClockTimeWriter" + writer).start();
+        }
+
+        final long[] drawCount = new long[1];
+        final long startElapsed = SystemClock.elapsedRealtime();
+        start.countDown();
+        while (done.getCount() > 0) {
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    // every other frame runs the clock on between updates
+                    boolean interpolated = drawCount[0] % 2 == 1;
+                    clockView.setClockTimeInterpolated(interpolated);
+                    long time = clockView.currentTimeMillis();
+                    clockView.draw(canvas);
+                    drawCount[0]++;
+                    long lastTime = BASE_TIME + (WRITER_COUNT * UPDATES_PER_WRITER - 1) * STEP;
+                    if (interpolated) {
+                        // a written time, advanced by no more than has elapsed since it was written
+                        assertTrue(time >= BASE_TIME);
+                        assertTrue(time <= lastTime + SystemClock.elapsedRealtime() - startElapsed);
+                    } else {
+                        assertEquals(0, (time - BASE_TIME) % STEP);
+                        assertTrue(time >= BASE_TIME && time <= lastTime);
+                    }
+                }
+            });
+        }
+        clockView.setClockTimeInterpolated(false);
+        assertNull(failure.get());
+        assertEquals(0, (clockView.currentTimeMillis() - BASE_TIME) % STEP);
+
+        ClockMetrics.Snapshot snapshot = clockView.getMetrics().snapshot(new ClockMetrics.Snapshot());
+        long updates = snapshot.getTimeUpdateCount();
+        assertEquals(WRITER_COUNT * UPDATES_PER_WRITER + 1, updates);
+        // the view is not attached, so only a draw lets the next update ask for a frame again
+        assertTrue(updates - snapshot.getCoalescedTimeUpdateCount() <= drawCount[0] + 1);
+
+        clockView.setClockTime(BASE_TIME);
+        assertEquals(BASE_TIME, clockView.currentTimeMillis());
+    }
+
+    @Test
+    public void interpolated_advancesOnTheMonotonicClock() throws Exception {
+        final ClockView clockView = createClockView();
+        long elapsed = SystemClock.elapsedRealtime();
+        clockView.setClockTime(BASE_TIME);
+        Thread.sleep(200);
+
+        long advance = clockView.currentTimeMillis() - BASE_TIME;
+        assertTrue(advance >= 200);
+        assertTrue(advance <= SystemClock.elapsedRealtime() - elapsed);
+
+        clockView.setClockTimeInterpolated(false);
+        assertEquals(BASE_TIME, clockView.currentTimeMillis());
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                clockView.setTimeSource(new ManualTimeSource(BASE_TIME - STEP));
+            }
+        });
+        assertEquals(BASE_TIME - STEP, clockView.currentTimeMillis());
+    }
+}
@@ -0,0 +1,196 @@
+package com.pcm.clockviewlib;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.os.Debug;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumentation test for the per-frame draw path of {@link ClockView}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ClockViewDrawTest {
+    private static final int SIZE = 400;
+
+    private static ClockView createClockView(int backgroundId) {
+        ClockView clockView = new ClockView(InstrumentationRegistry.getTargetContext());
+        clockView.setClockFaceBackground(backgroundId);
+        int spec = View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY);
+        clockView.measure(spec, spec);
+        clockView.layout(0, 0, SIZE, SIZE);
+        return clockView;
+    }
+
+    @After
+    public void tearDown() {
+        // the executor is process wide, later tests decode off the main thread again
+        BackgroundLoader.resetExecutor();
+    }
+
+    @Test
+    public void repeatedDraw_allocatesNoBitmaps() throws Exception {
+        final Canvas canvas = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+        final ClockView[] clockView = new ClockView[1];
+        BackgroundLoader.getInstance().clear();
+        BackgroundLoader.setExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                clockView[0] = createClockView(com.pcm.clockviewlib.test.R.drawable.test_clock_background);
+                // first frame builds the dial cache and decodes the background
+                clockView[0].draw(canvas);
+            }
+        });
+        // lets the dial be redrawn with its background
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                int allocations = DialCache.sBitmapAllocationCount.get();
+                long nativeBytes = Debug.getNativeHeapAllocatedSize();
+                Debug.resetThreadAllocCount();
+                Debug.resetThreadAllocSize();
+                Debug.startAllocCounting();
+                for (int i = 0; i < 100; i++) {
+                    clockView[0].draw(canvas);
+                }
+                Debug.stopAllocCounting();
+                int objects = Debug.getThreadAllocCount();
+                int bytes = Debug.getThreadAllocSize();
+                long nativeGrowth = Debug.getNativeHeapAllocatedSize() - nativeBytes;
+
+                assertEquals(allocations, DialCache.sBitmapAllocationCount.get());
+                // nothing on the Java heap, where bitmap pixels live before Android 8
+                assertEquals("allocated " + objects + " objects, " + bytes + " bytes", 0, objects);
+                // bitmap pixels live on the native heap from Android 8; other threads may allocate a
+                // little meanwhile, but a bitmap per frame would be a hundred of these
+                assertTrue("native heap grew " + nativeGrowth + " bytes", nativeGrowth < SIZE * SIZE * 4);
+            }
+        });
+    }
+
+    @Test
+    public void background_isDecodedOffTheDrawPath() throws Exception {
+        final Canvas canvas = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+        final ArrayList<Runnable> decodes = new ArrayList<>();
+        final int[] allocations = new int[1];
+        BackgroundLoader.getInstance().clear();
+        BackgroundLoader.setExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                decodes.add(command);
+            }
+        });
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                allocations[0] = DialCache.sBitmapAllocationCount.get();
+                // a style no other test uses, so the dial is not shared
+                ClockView clockView = createClockView(com.pcm.clockviewlib.test.R.drawable.test_clock_background);
+                clockView.setClockFaceColor(0xFF654321);
+                clockView.draw(canvas);
+                // only the plain dial so far
+                assertEquals(allocations[0] + 1, DialCache.sBitmapAllocationCount.get());
+            }
+        });
+        assertEquals(1, decodes.size());
+        decodes.get(0).run();
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        // the decoded background and the dial rendered with it, swapped in for the plain one
+        assertEquals(allocations[0] + 3, DialCache.sBitmapAllocationCount.get());
+    }
+
+    @Test
+    public void sweepFrame_fitsFrameBudget() throws Exception {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                ClockView clockView = createClockView(-1);
+                ManualTimeSource timeSource = new ManualTimeSource(System.currentTimeMillis());
+                clockView.setTimeSource(timeSource);
+                clockView.setSweepMode(true);
+                // a detached view does not start sweeping by itself
+                ClockRenderer renderer = clockView.getRenderer();
+                renderer.setContinuous(true);
+
+                Canvas canvas = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+                RectF dirtyBounds = new RectF();
+                clockView.draw(canvas);
+                for (int i = 0; i < FrameStats.WINDOW * 2; i++) {
+                    timeSource.advance(16);
+                    // the second hand moves on every frame
+                    dirtyBounds.setEmpty();
+                    assertTrue(renderer.getDirtyBounds(timeSource.currentTimeMillis(), dirtyBounds));
+                    assertFalse(dirtyBounds.isEmpty());
+                    clockView.draw(canvas);
+                }
+                FrameStats frameStats = clockView.getFrameStats();
+                // a quarter of a 60 fps frame, the rest belongs to the app
+                assertTrue("average " + frameStats.getAverageDrawTimeNanos() + "ns",
+                        frameStats.getAverageDrawTimeNanos() < 16666666L / 4);
+            }
+        });
+    }
+
+    @Test
+    public void repeatedDraw_changesNoPaint() throws Exception {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                ClockView clockView = createClockView(-1);
+                clockView.setHandShapes(HandShape.TAPERED, HandShape.COUNTERWEIGHTED, HandShape.CAPPED_LINE);
+                ClockStyle style = clockView.getClockStyle();
+                Paint[] paints = {style.getFacePaint(), style.getReadoutPaint(),
+                        style.getSecondHandPaint(), style.getMinuteHandPaint(), style.getHourHandPaint()};
+                String[] states = new String[paints.length];
+                for (int index = 0; index < paints.length; index++) {
+                    states[index] = describe(paints[index]);
+                }
+
+                Canvas canvas = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+                for (int i = 0; i < 100; i++) {
+                    clockView.draw(canvas);
+                }
+                int changes = 0;
+                for (int index = 0; index < paints.length; index++) {
+                    if (!states[index].equals(describe(paints[index]))) {
+                        changes++;
+                    }
+                }
+                assertEquals(0, changes);
+            }
+        });
+    }
+
+    private static String describe(Paint paint) {
+        return paint.getColor() + " " + paint.getStrokeWidth() + " " + paint.getStyle() + " "
+                + paint.getTextSize() + " " + paint.getTextAlign() + " " + paint.getFlags();
+    }
+
+    @Test
+    public void background_isDecodedDownsampledToViewSize() throws Exception {
+        // 1024x768 source onto a 400px view keeps both sides >= 400 only at sample size 1
+        assertEquals(1, BackgroundLoader.calculateInSampleSize(1024, 768, SIZE));
+        assertEquals(2, BackgroundLoader.calculateInSampleSize(1024, 768, 300));
+        assertEquals(4, BackgroundLoader.calculateInSampleSize(4000, 3000, SIZE));
+        assertEquals(1, BackgroundLoader.calculateInSampleSize(0, 0, SIZE));
+    }
+}
@@ -0,0 +1,59 @@
+package com.pcm.clockviewlib;
+
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumentation test for the layout of the numeral and Roman face labels.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FaceLabelsTest {
+    private static final String[] ROMAN_NUMERALS = {"XII", "I", "II", "III", "IV", "V", "VI", "VII", "VIII", "IX", "X", "XI"};
+
+    @Test
+    public void labels_areCenteredOnAnchors() throws Exception {
+        ClockStyle style = ClockStyle.getDefault().withFace(ClockView.FACE_ROMAN);
+        ClockGeometry geometry = new ClockGeometry();
+        geometry.setSize(400);
+        FaceLabels labels = FaceLabels.create(style);
+        labels.layout(geometry);
+
+        Paint paint = new Paint(style.getLabelPaint());
+        paint.setTextAlign(Paint.Align.LEFT);
+        paint.setTextSize(labels.getTextSize());
+        float[] anchors = geometry.getLabelAnchors();
+        float[] origins = labels.getOrigins();
+        Rect bounds = new Rect();
+        for (int index = 0; index < 12; index++) {
+            paint.getTextBounds(ROMAN_NUMERALS[index], 0, ROMAN_NUMERALS[index].length(), bounds);
+            assertEquals(anchors[index * 2], origins[index * 2] + bounds.exactCenterX(), 0.5f);
+            assertEquals(anchors[index * 2 + 1], origins[index * 2 + 1] + bounds.exactCenterY(), 0.5f);
+        }
+    }
+
+    @Test
+    public void textSize_scalesWithDiameter() throws Exception {
+        ClockStyle style = ClockStyle.getDefault().withFace(ClockView.FACE_DIGITAL);
+        ClockGeometry geometry = new ClockGeometry();
+        FaceLabels labels = FaceLabels.create(style);
+
+        geometry.setSize(400);
+        labels.layout(geometry);
+        assertEquals(ClockStyle.TEXT_SIZE, labels.getTextSize(), 0.01f);
+
+        geometry.setSize(200);
+        labels.layout(geometry);
+        assertEquals(ClockStyle.TEXT_SIZE / 2f, labels.getTextSize(), 0.01f);
+    }
+
+    @Test
+    public void plainFace_hasNoLabels() throws Exception {
+        assertNull(FaceLabels.create(ClockStyle.getDefault().withFace(ClockView.FACE_DEFAULT)));
+    }
+}
@@ -0,0 +1,85 @@
+package com.pcm.clockviewlib;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.view.Surface;
+import android.view.SurfaceHolder;
+
+/**
+ * Surface backed by a bitmap that records the areas locked for drawing
+ */
+final class FakeSurfaceHolder implements SurfaceHolder {
+    final Bitmap bitmap;
+    final Canvas canvas;
+    final Rect lastLocked = new Rect();
+    int lockCount;
+    long lockedArea;
+
+    FakeSurfaceHolder(int width, int height) {
+        bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        canvas = new Canvas(bitmap);
+    }
+
+    @Override
+    public Canvas lockCanvas() {
+        return lockCanvas(null);
+    }
+
+    @Override
+    public Canvas lockCanvas(Rect dirty) {
+        lastLocked.set(dirty != null ? dirty : getSurfaceFrame());
+        lockCount++;
+        lockedArea += (long) lastLocked.width() * lastLocked.height();
+        canvas.save();
+        return canvas;
+    }
+
+    @Override
+    public void unlockCanvasAndPost(Canvas canvas) {
+        canvas.restore();
+    }
+
+    @Override
+    public Rect getSurfaceFrame() {
+        return new Rect(0, 0, bitmap.getWidth(), bitmap.getHeight());
+    }
+
+    @Override
+    public Surface getSurface() {
+        return null;
+    }
+
+    @Override
+    public void addCallback(Callback callback) {
+    }
+
+    @Override
+    public void removeCallback(Callback callback) {
+    }
+
+    @Override
+    public boolean isCreating() {
+        return false;
+    }
+
+    @Override
+    public void setFormat(int format) {
+    }
+
+    @Override
+    public void setFixedSize(int width, int height) {
+    }
+
+    @Override
+    public void setSizeFromLayout() {
+    }
+
+    @Override
+    public void setKeepScreenOn(boolean screenOn) {
+    }
+
+    @Override
+    public void setType(int type) {
+    }
+}
@@ -0,0 +1,44 @@
+package com.pcm.clockviewlib;
+
+import android.graphics.RectF;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumentation test for the area covered by a built {@link HandShape}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class HandPathTest {
+
+    @Test
+    public void bounds_followTheRotation() throws Exception {
+        HandPath hand = new HandPath();
+        hand.build(HandShape.LINE, 100, 4);
+        RectF bounds = new RectF();
+
+        // 12 o'clock: straight up from the center, widened by half the stroke
+        hand.addBounds(0, 200, 0, bounds);
+        assertEquals(new RectF(198, 98, 202, 202), bounds);
+
+        // 3 o'clock
+        bounds.setEmpty();
+        hand.addBounds(90, 200, 0, bounds);
+        assertEquals(198, bounds.left, 0.01f);
+        assertEquals(198, bounds.top, 0.01f);
+        assertEquals(302, bounds.right, 0.01f);
+        assertEquals(202, bounds.bottom, 0.01f);
+    }
+
+    @Test
+    public void counterweight_isBehindTheCenter() throws Exception {
+        HandPath hand = new HandPath();
+        hand.build(HandShape.COUNTERWEIGHTED, 100, 2);
+        RectF bounds = new RectF();
+        hand.addBounds(0, 200, 0, bounds);
+        assertTrue(bounds.bottom > 220);
+    }
+}
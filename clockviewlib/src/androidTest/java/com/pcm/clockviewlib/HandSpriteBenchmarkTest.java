@@ -0,0 +1,176 @@
+package com.pcm.clockviewlib;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.TimeZone;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Benchmark of vector against sprite hands on a software canvas for every face type,
+ * frame times and atlas size in logcat.
+ */
+@RunWith(AndroidJUnit4.class)
+public class HandSpriteBenchmarkTest {
+    private static final String TAG = HandSpriteBenchmarkTest.class.getSimpleName();
+    private static final int[] FACES = {ClockView.FACE_DEFAULT, ClockView.FACE_DIGITAL, ClockView.FACE_ROMAN};
+    private static final int SIZE = 400;
+    private static final int FRAMES = 300;
+    // 10:08:30 UTC
+    private static final long TIME = (10 * 3600 + 8 * 60 + 30) * 1000L;
+
+    @Before
+    public void setUp() {
+        // sprites are built within the draw that asks for them, so frames can be timed right away
+        DialCache.setAtlasExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        DialCache.setAtlasExecutor(Executors.newSingleThreadExecutor());
+    }
+
+    private static ClockRenderer createRenderer(ClockStyle style, int strategy) {
+        Resources resources = InstrumentationRegistry.getTargetContext().getResources();
+        ClockRenderer renderer = new ClockRenderer(resources, style);
+        renderer.setTimeZone(TimeZone.getTimeZone("UTC"));
+        renderer.setSize(SIZE);
+        renderer.setRenderStrategy(strategy);
+        return renderer;
+    }
+
+    /**
+     * @return average nanoseconds per frame, one frame per second of clock time
+     */
+    private static long timeFrames(ClockRenderer renderer, Canvas canvas) {
+        // first frame renders the dial and the atlas
+        renderer.draw(canvas, TIME);
+        long start = System.nanoTime();
+        for (int frame = 0; frame < FRAMES; frame++) {
+            renderer.draw(canvas, TIME + frame * 1000L);
+        }
+        return (System.nanoTime() - start) / FRAMES;
+    }
+
+    @Test
+    public void sprites_compareWithVectorsPerFace() throws Exception {
+        Canvas canvas = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+        for (int face : FACES) {
+            ClockStyle style = ClockStyle.getDefault().withFace(face);
+            ClockRenderer vector = createRenderer(style, ClockRenderer.RENDER_VECTOR);
+            long vectorFrame = timeFrames(vector, canvas);
+            assertEquals(ClockRenderer.RENDER_VECTOR, vector.getFrameRenderStrategy());
+
+            ClockRenderer sprites = createRenderer(style, ClockRenderer.RENDER_SPRITES);
+            long spriteFrame = timeFrames(sprites, canvas);
+            assertEquals(ClockRenderer.RENDER_SPRITES, sprites.getFrameRenderStrategy());
+            long spriteBytes = sprites.getSpriteByteCount();
+            assertTrue(spriteBytes > 0 && spriteBytes <= ClockRenderer.DEFAULT_SPRITE_BUDGET);
+
+            Log.d(TAG, "face " + face + ": " + vectorFrame / 1000 + "us/frame vector, "
+                    + spriteFrame / 1000 + "us/frame sprites, atlas " + spriteBytes / 1024 + "kB");
+            sprites.release();
+            vector.release();
+        }
+    }
+
+    @Test
+    public void spriteBudget_fallsBackToVectors() throws Exception {
+        Canvas canvas = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+        ClockRenderer renderer = createRenderer(ClockStyle.getDefault(), ClockRenderer.RENDER_SPRITES);
+        renderer.draw(canvas, TIME);
+        long fullBytes = renderer.getSpriteByteCount();
+
+        // fewer hour rotations fit a smaller budget
+        renderer.setSpriteMemoryBudget(fullBytes - 1);
+        renderer.draw(canvas, TIME);
+        assertEquals(ClockRenderer.RENDER_SPRITES, renderer.getFrameRenderStrategy());
+        assertTrue(renderer.getSpriteByteCount() < fullBytes);
+
+        renderer.setSpriteMemoryBudget(1);
+        renderer.draw(canvas, TIME);
+        assertEquals(ClockRenderer.RENDER_VECTOR, renderer.getFrameRenderStrategy());
+        assertEquals(0, renderer.getSpriteByteCount());
+        renderer.release();
+    }
+
+    @Test
+    public void autoStrategy_settlesAfterTimingBoth() throws Exception {
+        Canvas canvas = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+        ClockRenderer renderer = createRenderer(ClockStyle.getDefault(), ClockRenderer.RENDER_AUTO);
+        boolean drewSprites = false;
+        for (int frame = 0; frame < 64; frame++) {
+            renderer.draw(canvas, TIME + frame * 1000L);
+            drewSprites |= renderer.getFrameRenderStrategy() == ClockRenderer.RENDER_SPRITES;
+        }
+        int chosen = renderer.getFrameRenderStrategy();
+        assertTrue(drewSprites);
+        for (int frame = 0; frame < 8; frame++) {
+            renderer.draw(canvas, TIME + frame * 1000L);
+            assertEquals(chosen, renderer.getFrameRenderStrategy());
+        }
+        Log.d(TAG, "auto picked " + (chosen == ClockRenderer.RENDER_SPRITES ? "sprites" : "vectors"));
+        renderer.release();
+    }
+
+    @Test
+    public void sprites_areBuiltOffTheDrawCall() throws Exception {
+        final ArrayList<Runnable> builds = new ArrayList<>();
+        DialCache.setAtlasExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                builds.add(command);
+            }
+        });
+        Canvas canvas = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+        ClockRenderer renderer = createRenderer(ClockStyle.getDefault().withFaceColor(0xFF335577),
+                ClockRenderer.RENDER_SPRITES);
+        renderer.draw(canvas, TIME);
+        assertEquals(ClockRenderer.RENDER_VECTOR, renderer.getFrameRenderStrategy());
+        assertEquals(1, builds.size());
+
+        builds.get(0).run();
+        renderer.draw(canvas, TIME);
+        assertEquals(ClockRenderer.RENDER_SPRITES, renderer.getFrameRenderStrategy());
+        renderer.release();
+    }
+
+    @Test
+    public void sharedSprites_surviveAnotherClockChangingItsCount() throws Exception {
+        Canvas canvas = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+        ClockStyle style = ClockStyle.getDefault().withFaceColor(0xFF446688);
+        ClockRenderer first = createRenderer(style, ClockRenderer.RENDER_SPRITES);
+        ClockRenderer second = createRenderer(style, ClockRenderer.RENDER_SPRITES);
+        first.draw(canvas, TIME);
+        second.draw(canvas, TIME);
+        long bytes = first.getSpriteByteCount();
+
+        second.setHourSpriteCount(120);
+        second.draw(canvas, TIME);
+        // the first clock still holds its sprites, they were not recycled under it
+        first.draw(canvas, TIME + 1000);
+        assertEquals(ClockRenderer.RENDER_SPRITES, first.getFrameRenderStrategy());
+        assertEquals(bytes, first.getSpriteByteCount());
+        assertTrue(second.getSpriteByteCount() < bytes);
+        first.release();
+        second.release();
+    }
+}
@@ -0,0 +1,9 @@
+package com.pcm.clockviewlib;
+
+import android.app.Activity;
+
+/**
+ * Empty window for tests of views that need to be attached, e.g. a {@link ClockTextureView}.
+ */
+public class TestActivity extends Activity {
+}
@@ -0,0 +1,128 @@
+package com.pcm.clockviewlib;
+
+import android.graphics.Rect;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives the wallpaper clock through simulated hours on a fake surface, wakeups per hour
+ * and draw time per frame in logcat.
+ */
+@RunWith(AndroidJUnit4.class)
+public class WallpaperClockTest {
+    private static final String TAG = WallpaperClockTest.class.getSimpleName();
+    private static final int WIDTH = 720;
+    private static final int HEIGHT = 1280;
+    private static final long HOUR = 3600 * 1000L;
+    // 10:08:30.250 UTC, between two seconds
+    private static final long TIME = (10 * 3600 + 8 * 60 + 30) * 1000L + 250;
+
+    private FakeSurfaceHolder mHolder;
+    private ManualTimeSource mTimeSource;
+    private WallpaperClock mClock;
+
+    @Before
+    public void setUp() {
+        mHolder = new FakeSurfaceHolder(WIDTH, HEIGHT);
+        mTimeSource = new ManualTimeSource(TIME);
+        mClock = new WallpaperClock(InstrumentationRegistry.getTargetContext().getResources(), mHolder,
+                ClockStyle.getDefault(), null);
+        mClock.setTimeSource(mTimeSource);
+        mClock.setSurfaceAvailable(true);
+        mClock.setSurfaceSize(WIDTH, HEIGHT);
+        mClock.setVisible(true);
+    }
+
+    /**
+     * Calls {@link WallpaperClock#drawFrame()} and moves the time on by the delay it asks for,
+     * as the engine's handler would, for one simulated hour
+     *
+     * @return average draw time per frame in nanoseconds
+     */
+    private long runHour() {
+        long end = mTimeSource.currentTimeMillis() + HOUR;
+        long drawNanos = 0;
+        int frames = 0;
+        while (mTimeSource.currentTimeMillis() < end) {
+            long start = System.nanoTime();
+            long delay = mClock.drawFrame();
+            drawNanos += System.nanoTime() - start;
+            frames++;
+            assertTrue(delay > 0);
+            mTimeSource.advance(delay);
+        }
+        return drawNanos / frames;
+    }
+
+    @Test
+    public void frames_areAlignedToSecondsAndLockOnlyTheHands() throws Exception {
+        long frameTime = runHour();
+        long wakeups = mClock.getWakeupCount();
+        double lockedShare = (double) mHolder.lockedArea / mHolder.lockCount / (WIDTH * HEIGHT);
+        Log.d(TAG, wakeups + " wakeups/hour, " + frameTime / 1000 + "us/frame, "
+                + Math.round(lockedShare * 100) + "% of the surface locked per frame");
+
+        // one unaligned first frame, then one per second
+        assertEquals(3601, wakeups);
+        assertEquals(0, mTimeSource.currentTimeMillis() % 1000);
+        assertTrue(lockedShare < 0.25);
+        assertTrue(mHolder.lastLocked.width() < WIDTH);
+    }
+
+    @Test
+    public void lowPowerMode_wakesOncePerMinute() throws Exception {
+        mClock.setLowPowerMode(true);
+        long frameTime = runHour();
+        long wakeups = mClock.getWakeupCount();
+        Log.d(TAG, "low power: " + wakeups + " wakeups/hour, " + frameTime / 1000 + "us/frame");
+
+        assertEquals(61, wakeups);
+        assertEquals(0, mTimeSource.currentTimeMillis() % (60 * 1000));
+    }
+
+    @Test
+    public void offsets_moveTheClockWithoutRenderingTheDial() throws Exception {
+        mClock.drawFrame();
+        int allocations = DialCache.sBitmapAllocationCount.get();
+        int color = mHolder.bitmap.getPixel(WIDTH / 2, HEIGHT / 2);
+
+        mClock.setOffset(0);
+        mClock.drawFrame();
+        assertEquals(new Rect(0, 0, WIDTH, HEIGHT), mHolder.lastLocked);
+        assertEquals(allocations, DialCache.sBitmapAllocationCount.get());
+        // the pivot of the hands moved right by an eighth of the width
+        assertEquals(color, mHolder.bitmap.getPixel(WIDTH / 2 + WIDTH / 8, HEIGHT / 2));
+    }
+
+    @Test
+    public void hidden_drawsAndSchedulesNothing() throws Exception {
+        mClock.drawFrame();
+        int locks = mHolder.lockCount;
+        mClock.setVisible(false);
+        mTimeSource.advance(HOUR);
+
+        assertEquals(-1, mClock.drawFrame());
+        assertEquals(locks, mHolder.lockCount);
+    }
+
+    @Test
+    public void newSurface_drawsAgainWithoutAVisibilityChange() throws Exception {
+        mClock.drawFrame();
+        mClock.setSurfaceAvailable(false);
+        assertEquals(-1, mClock.drawFrame());
+
+        int locks = mHolder.lockCount;
+        mClock.setSurfaceAvailable(true);
+        mTimeSource.advance(1000);
+        assertTrue(mClock.drawFrame() > 0);
+        assertEquals(locks + 1, mHolder.lockCount);
+        assertEquals(new Rect(0, 0, WIDTH, HEIGHT), mHolder.lastLocked);
+    }
+}
@@ -0,0 +1,227 @@
+package com.pcm.clockviewlib;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.VisibleForTesting;
+import android.util.LruCache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Decodes clock face backgrounds off the main thread, downsampled to the size they
+ * are drawn at, and keeps them in a memory bounded LRU keyed by resource and size.
+ */
+final class BackgroundLoader {
+    private static BackgroundLoader sInstance;
+    private static Executor sExecutor = createExecutor();
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final LruCache<Long, Bitmap> mCache;
+    private final HashMap<Long, ArrayList<OnLoadedListener>> mPending = new HashMap<>();
+
+    /**
+     * Called on the main thread, with null if the resource could not be decoded
+     */
+    interface OnLoadedListener {
+        void onLoaded(Bitmap background);
+    }
+
+    private BackgroundLoader() {
+        // an eighth of the heap, in kilobytes
+        int maxSize = (int) (Runtime.getRuntime().maxMemory() / 1024 / 8);
+        mCache = new LruCache<Long, Bitmap>(maxSize) {
+            @Override
+            protected int sizeOf(Long key, Bitmap bitmap) {
+                return bitmap.getByteCount() / 1024;
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, Long key, Bitmap oldValue, Bitmap newValue) {
+                ClockMetrics.sBackgroundBytes.addAndGet(-oldValue.getByteCount());
+            }
+        };
+    }
+
+    static synchronized BackgroundLoader getInstance() {
+        if (sInstance == null) {
+            sInstance = new BackgroundLoader();
+        }
+        return sInstance;
+    }
+
+    private static Executor createExecutor() {
+        return Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }
+                }, "ClockBackgroundLoader");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    @VisibleForTesting
+    static void setExecutor(Executor executor) {
+        sExecutor = executor;
+    }
+
+    /**
+     * Puts back a background decode thread after {@link #setExecutor(Executor)}
+     */
+    @VisibleForTesting
+    static void resetExecutor() {
+        sExecutor = createExecutor();
+    }
+
+    private static Long key(int resId, int size) {
+        return ((long) resId << 32) | size;
+    }
+
+    /**
+     * @return the background if it is already decoded for this size, null otherwise
+     */
+    Bitmap get(int resId, int size) {
+        return mCache.get(key(resId, size));
+    }
+
+    /**
+     * Decodes on the calling thread if the background is not decoded yet, for
+     * renderers that run off the main thread and can afford to wait for it.
+     */
+    Bitmap getOrDecode(Resources resources, int resId, int size) {
+        Long key = key(resId, size);
+        Bitmap background = mCache.get(key);
+        if (background == null) {
+            background = decode(resources, resId, size);
+            if (background != null) {
+                put(key, background);
+            }
+        }
+        return background;
+    }
+
+    /**
+     * Decodes the background on the background executor, requests for a resource and
+     * size that is already being decoded just wait for that decode.
+     */
+    synchronized void load(final Resources resources, final int resId, final int size, OnLoadedListener listener) {
+        final Long key = key(resId, size);
+        Bitmap cached = mCache.get(key);
+        if (cached != null) {
+            listener.onLoaded(cached);
+            return;
+        }
+        ArrayList<OnLoadedListener> listeners = mPending.get(key);
+        if (listeners != null) {
+            listeners.add(listener);
+            return;
+        }
+        listeners = new ArrayList<>();
+        listeners.add(listener);
+        mPending.put(key, listeners);
+
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap background = decode(resources, resId, size);
+                if (background != null) {
+                    put(key, background);
+                }
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        dispatchLoaded(key, background);
+                    }
+                });
+            }
+        });
+    }
+
+    private void dispatchLoaded(Long key, Bitmap background) {
+        ArrayList<OnLoadedListener> listeners;
+        synchronized (this) {
+            listeners = mPending.remove(key);
+        }
+        if (listeners == null) {
+            return;
+        }
+        for (OnLoadedListener listener : listeners) {
+            listener.onLoaded(background);
+        }
+    }
+
+    private void put(Long key, Bitmap background) {
+        ClockMetrics.sBackgroundBytes.addAndGet(background.getByteCount());
+        mCache.put(key, background);
+    }
+
+    void clear() {
+        mCache.evictAll();
+    }
+
+    /**
+     * Drops every decoded background once the UI is hidden or the app is in the background:
+     * they are only needed to render new dials, the dials in use already contain them.
+     * While the app is running in front they are kept, a dial rebuilt then would otherwise
+     * have to wait for a decode.
+     */
+    void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            mCache.evictAll();
+        }
+    }
+
+    /**
+     * Decodes with the largest power of two sample size that keeps the shorter side at
+     * least {@code size}, and lets the decoder scale the rest of the way through the densities.
+     */
+    static Bitmap decode(Resources resources, int resId, int size) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        options.inScaled = false;
+        BitmapFactory.decodeResource(resources, resId, options);
+        int shortSide = Math.min(options.outWidth, options.outHeight);
+        if (shortSide <= 0) {
+            return null;
+        }
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, size);
+        options.inJustDecodeBounds = false;
+        options.inScaled = true;
+        options.inDensity = shortSide / options.inSampleSize;
+        options.inTargetDensity = Math.min(size, options.inDensity);
+        Bitmap background = BitmapFactory.decodeResource(resources, resId, options);
+        if (background != null) {
+            DialCache.sBitmapAllocationCount.incrementAndGet();
+        }
+        return background;
+    }
+
+    /**
+     * @return largest power of two sample size that still keeps both sides at least {@code size}
+     */
+    static int calculateInSampleSize(int width, int height, int size) {
+        int inSampleSize = 1;
+        if (width <= 0 || height <= 0) {
+            return inSampleSize;
+        }
+        while (width / (inSampleSize * 2) >= size && height / (inSampleSize * 2) >= size) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+}
@@ -0,0 +1,58 @@
+package com.pcm.clockviewlib;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayList;
+
+/**
+ * Square ARGB_8888 bitmaps for rendered clock frames, handed back after use so the
+ * next frames reuse them instead of allocating. Safe to share between threads.
+ */
+public final class ClockBitmapPool {
+    private final int mMaxPooled;
+    private final ArrayList<Bitmap> mPooled = new ArrayList<>();
+
+    /**
+     * @param maxPooled : bitmaps kept for reuse at most, the rest are recycled when handed back
+     */
+    public ClockBitmapPool(int maxPooled) {
+        mMaxPooled = maxPooled;
+    }
+
+    /**
+     * @return a pooled bitmap of {@code size} pixels square, with undefined content, or a new one
+     */
+    public synchronized Bitmap obtain(int size) {
+        for (int index = mPooled.size() - 1; index >= 0; index--) {
+            Bitmap bitmap = mPooled.get(index);
+            if (bitmap.getWidth() == size && bitmap.getHeight() == size) {
+                mPooled.remove(index);
+                return bitmap;
+            }
+        }
+        DialCache.sBitmapAllocationCount.incrementAndGet();
+        return Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+    }
+
+    public synchronized void recycle(Bitmap bitmap) {
+        if (bitmap.isRecycled()) {
+            return;
+        }
+        if (mPooled.size() < mMaxPooled) {
+            mPooled.add(bitmap);
+        } else {
+            bitmap.recycle();
+        }
+    }
+
+    public synchronized int getPooledCount() {
+        return mPooled.size();
+    }
+
+    public synchronized void clear() {
+        for (int index = 0; index < mPooled.size(); index++) {
+            mPooled.get(index).recycle();
+        }
+        mPooled.clear();
+    }
+}
@@ -0,0 +1,145 @@
+package com.pcm.clockviewlib;
+
+/**
+ * Precomputed positions for a clock of a given size, so drawing needs no trigonometry.
+ * Angles are in degrees, clockwise from 12 o'clock. Points are stored as flat x,y pairs.
+ */
+final class ClockGeometry {
+    /**
+     * Resolution of the unit vector table, half a degree covers every hour hand position
+     */
+    static final int ANGLE_STEPS = 720;
+    private static final float STEPS_PER_DEGREE = ANGLE_STEPS / 360f;
+    private static final float[] UNIT_VECTORS = new float[ANGLE_STEPS * 2];
+
+    static {
+        for (int index = 0; index < ANGLE_STEPS; index++) {
+            double radians = Math.toRadians(index / STEPS_PER_DEGREE - 90);
+            UNIT_VECTORS[index * 2] = (float) Math.cos(radians);
+            UNIT_VECTORS[index * 2 + 1] = (float) Math.sin(radians);
+        }
+    }
+
+    private final float[] mTicks = new float[60 * 2];
+    private final float[] mMajorInnerTicks = new float[12 * 2];
+    private final float[] mMajorOuterTicks = new float[12 * 2];
+    private final float[] mLabelAnchors = new float[12 * 2];
+    private int mSize;
+    private float mCenter;
+    private float mFaceRadius;
+    private float mSecondHandLength;
+    private float mMinuteHandLength;
+    private float mHourHandLength;
+
+    /**
+     * Fills the tables for a square clock of {@code size} pixels
+     */
+    void setSize(int size) {
+        mSize = size;
+        mCenter = size / 2;
+        mFaceRadius = mCenter / 1.25f;
+        mSecondHandLength = mCenter / 1.5f;
+        mMinuteHandLength = mCenter / 1.75f;
+        mHourHandLength = mCenter / 2f;
+
+        fillPoints(mTicks, 60, mCenter / 1.35f);
+        fillPoints(mMajorInnerTicks, 12, mCenter / 1.4f);
+        fillPoints(mMajorOuterTicks, 12, mCenter / 1.3f);
+        fillPoints(mLabelAnchors, 12, mCenter / 1.5f);
+    }
+
+    private void fillPoints(float[] points, int count, float radius) {
+        for (int index = 0; index < count; index++) {
+            float angle = index * 360f / count;
+            points[index * 2] = getX(angle, radius);
+            points[index * 2 + 1] = getY(angle, radius);
+        }
+    }
+
+    int getSize() {
+        return mSize;
+    }
+
+    float getCenter() {
+        return mCenter;
+    }
+
+    float getFaceRadius() {
+        return mFaceRadius;
+    }
+
+    float getSecondHandLength() {
+        return mSecondHandLength;
+    }
+
+    float getMinuteHandLength() {
+        return mMinuteHandLength;
+    }
+
+    float getHourHandLength() {
+        return mHourHandLength;
+    }
+
+    /**
+     * @return 60 minute marks, mark {@code i} at {@code i * 6} degrees
+     */
+    float[] getTicks() {
+        return mTicks;
+    }
+
+    /**
+     * @return 12 hour marks inside the minute marks
+     */
+    float[] getMajorInnerTicks() {
+        return mMajorInnerTicks;
+    }
+
+    /**
+     * @return 12 hour marks outside the minute marks
+     */
+    float[] getMajorOuterTicks() {
+        return mMajorOuterTicks;
+    }
+
+    /**
+     * @return 12 label anchors, anchor {@code i} at hour {@code i} (0 is 12 o'clock)
+     */
+    float[] getLabelAnchors() {
+        return mLabelAnchors;
+    }
+
+    float getX(float angle, float length) {
+        return mCenter + length * unitX(angle);
+    }
+
+    float getY(float angle, float length) {
+        return mCenter + length * unitY(angle);
+    }
+
+    static float unitX(float angle) {
+        return lookup(angle, 0);
+    }
+
+    static float unitY(float angle) {
+        return lookup(angle, 1);
+    }
+
+    /**
+     * Exact table value for multiples of half a degree, linear interpolation in between
+     */
+    private static float lookup(float angle, int component) {
+        float position = angle * STEPS_PER_DEGREE;
+        int index = (int) Math.floor(position);
+        float fraction = position - index;
+        index %= ANGLE_STEPS;
+        if (index < 0) {
+            index += ANGLE_STEPS;
+        }
+        float value = UNIT_VECTORS[index * 2 + component];
+        if (fraction == 0) {
+            return value;
+        }
+        int next = index + 1 == ANGLE_STEPS ? 0 : index + 1;
+        return value + (UNIT_VECTORS[next * 2 + component] - value) * fraction;
+    }
+}
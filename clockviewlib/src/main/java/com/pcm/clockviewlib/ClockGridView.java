@@ -0,0 +1,301 @@
+package com.pcm.clockviewlib;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.support.annotation.Nullable;
+import android.util.AttributeSet;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.TimeZone;
+
+/**
+ * Many clocks, one per time zone, laid out in a grid inside one view.
+ * <p>
+ * All clocks share one style, so they share one dial bitmap, one set of geometry
+ * tables and one subscription to the {@link ClockTicker}. Every frame blits the dial
+ * once per clock and draws all hands of a kind with a single {@code drawLines} call.
+ * Hands are drawn as plain lines whatever the hand shapes of the style, and the
+ * label is shown under each clock instead of the digital readout.
+ */
+public class ClockGridView extends View {
+    // label text height relative to the clock size
+    private static final float LABEL_TEXT_RATIO = 0.12f;
+    private ClockStyle mStyle;
+    private TimeSource mTimeSource = SystemTimeSource.getInstance();
+    private final ClockGeometry mGeometry = new ClockGeometry();
+    private final ArrayList<ClockTime> mTimes = new ArrayList<>();
+    private final ArrayList<String> mLabels = new ArrayList<>();
+    private final Paint mLabelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private int mColumnCount;
+    private int mCellWidth;
+    private int mCellHeight;
+    private float[] mCellOrigins = new float[0];
+    private float[] mHourLines = new float[0];
+    private float[] mMinuteLines = new float[0];
+    private float[] mSecondLines = new float[0];
+    private DialCache.Dial mDial;
+    private int mDialSize;
+    private boolean isAttached;
+    private boolean isWindowVisible = true;
+    private ClockTicker.OnTickListener mTickListener;
+    private Runnable mDialUpdated;
+    private ClockMemory.Callbacks mMemoryCallbacks;
+    private final Rect mVisibleRect = new Rect();
+    private final FrameStats mFrameStats = new FrameStats();
+
+    public ClockGridView(Context context) {
+        this(context, null);
+    }
+
+    public ClockGridView(Context context, @Nullable AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public ClockGridView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        mStyle = ClockStyle.obtain(context, attrs, defStyleAttr);
+
+        TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.ClockGridView, defStyleAttr, 0);
+        mColumnCount = typedArray.getInt(R.styleable.ClockGridView_column_count, 0);
+        typedArray.recycle();
+        init();
+    }
+
+    private void init() {
+        mLabelPaint.setTextAlign(Paint.Align.CENTER);
+        mLabelPaint.setColor(mStyle.getFaceColor());
+        mTickListener = new ClockTicker.OnTickListener() {
+            @Override
+            public void onTick(boolean resumed) {
+                // scrolled out of its parent, it is redrawn with the current time when it comes back
+                if (getLocalVisibleRect(mVisibleRect)) {
+                    invalidate();
+                }
+            }
+        };
+        mDialUpdated = new Runnable() {
+            @Override
+            public void run() {
+                invalidate();
+            }
+        };
+        mMemoryCallbacks = new ClockMemory.Callbacks() {
+            @Override
+            public void onTrimMemory(int level) {
+                boolean onScreen = isAttached && isWindowVisible && isShown() && getLocalVisibleRect(mVisibleRect);
+                if (ClockMemory.shouldRelease(level, onScreen)) {
+                    releaseDial();
+                    invalidate();
+                }
+            }
+        };
+    }
+
+    /**
+     * @param timeZone : time zone the clock shows
+     * @param label    : text under the clock, e.g. the city
+     */
+    public void addClock(TimeZone timeZone, String label) {
+        mTimes.add(new ClockTime(timeZone));
+        mLabels.add(label);
+        int count = mTimes.size();
+        mCellOrigins = new float[count * 2];
+        mHourLines = new float[count * 4];
+        mMinuteLines = new float[count * 4];
+        mSecondLines = new float[count * 4];
+        requestLayout();
+        invalidate();
+    }
+
+    public void clearClocks() {
+        mTimes.clear();
+        mLabels.clear();
+        requestLayout();
+        invalidate();
+    }
+
+    public int getClockCount() {
+        return mTimes.size();
+    }
+
+    /**
+     * @param columnCount : clocks per row, 0 to pick a near square grid
+     */
+    public void setColumnCount(int columnCount) {
+        mColumnCount = columnCount;
+        requestLayout();
+    }
+
+    /**
+     * @param style : shared look of every clock in the grid
+     */
+    public void setClockStyle(ClockStyle style) {
+        if (style == mStyle) {
+            return;
+        }
+        releaseDial();
+        mStyle = style;
+        mLabelPaint.setColor(style.getFaceColor());
+        invalidate();
+    }
+
+    public ClockStyle getClockStyle() {
+        return mStyle;
+    }
+
+    /**
+     * @param timeSource : where the clocks read the time from, {@link SystemTimeSource} by default
+     */
+    public void setTimeSource(TimeSource timeSource) {
+        mTimeSource = timeSource;
+        invalidate();
+    }
+
+    public FrameStats getFrameStats() {
+        return mFrameStats;
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        isAttached = true;
+        ClockMemory.register(getContext());
+        getContext().getApplicationContext().registerComponentCallbacks(mMemoryCallbacks);
+        updateTicking();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        isWindowVisible = visibility == VISIBLE;
+        updateTicking();
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateTicking();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        isAttached = false;
+        getContext().getApplicationContext().unregisterComponentCallbacks(mMemoryCallbacks);
+        updateTicking();
+        releaseDial();
+    }
+
+    /**
+     * One subscription to the shared {@link ClockTicker} for the whole grid, while it can be seen:
+     * attached, in a visible window, with itself and all its parents visible
+     */
+    private void updateTicking() {
+        if (mTickListener == null) {
+            // visibility can change while the view is being constructed
+            return;
+        }
+        if (isAttached && isWindowVisible && isShown()) {
+            ClockTicker.getInstance().register(getContext(), mTickListener, false);
+        } else {
+            ClockTicker.getInstance().unregister(mTickListener);
+        }
+    }
+
+    private int getColumns() {
+        int count = mTimes.size();
+        if (mColumnCount > 0) {
+            return mColumnCount;
+        }
+        return Math.max(1, (int) Math.ceil(Math.sqrt(count)));
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        layoutCells(right - left, bottom - top);
+    }
+
+    /**
+     * Splits the view into equal cells, each a square clock with its label below
+     */
+    private void layoutCells(int width, int height) {
+        int count = mTimes.size();
+        int columns = getColumns();
+        int rows = Math.max(1, (count + columns - 1) / columns);
+        mCellWidth = width / columns;
+        mCellHeight = height / rows;
+        // the label takes LABEL_TEXT_RATIO of the clock size plus a little spacing
+        int clockSize = (int) Math.min(mCellWidth, mCellHeight / (1 + LABEL_TEXT_RATIO * 1.5f));
+        if (clockSize != mGeometry.getSize()) {
+            releaseDial();
+            mGeometry.setSize(Math.max(0, clockSize));
+            mLabelPaint.setTextSize(clockSize * LABEL_TEXT_RATIO);
+        }
+        for (int index = 0; index < count; index++) {
+            mCellOrigins[index * 2] = (index % columns) * mCellWidth + (mCellWidth - clockSize) / 2;
+            mCellOrigins[index * 2 + 1] = (index / columns) * mCellHeight;
+        }
+    }
+
+    private void releaseDial() {
+        if (mDial != null) {
+            mStyle.getDialCache().release(mDialSize, mDialUpdated);
+            mDial = null;
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        long frameStartTime = System.nanoTime();
+        int size = mGeometry.getSize();
+        int count = mTimes.size();
+        if (size <= 0 || count == 0) {
+            return;
+        }
+        if (mDial == null) {
+            mDial = mStyle.getDialCache().acquire(getResources(), size, mDialUpdated);
+            mDialSize = size;
+        }
+
+        Bitmap dial = mDial.getBitmap();
+        long now = mTimeSource.currentTimeMillis();
+        float secondLength = mGeometry.getSecondHandLength();
+        float minuteLength = mGeometry.getMinuteHandLength();
+        float hourLength = mGeometry.getHourHandLength();
+        float labelBaseline = size + mLabelPaint.getTextSize();
+        for (int index = 0; index < count; index++) {
+            float x = mCellOrigins[index * 2];
+            float y = mCellOrigins[index * 2 + 1];
+            canvas.drawBitmap(dial, x, y, null);
+            canvas.drawText(mLabels.get(index), x + size / 2f, y + labelBaseline, mLabelPaint);
+
+            ClockTime time = mTimes.get(index);
+            time.set(now);
+            fillHand(mHourLines, index, x, y, time.getHourAngle(), hourLength);
+            fillHand(mMinuteLines, index, x, y, time.getMinuteAngle(), minuteLength);
+            fillHand(mSecondLines, index, x, y, time.getSecondAngle(), secondLength);
+        }
+        canvas.drawLines(mHourLines, 0, count * 4, mStyle.getHourHandPaint());
+        canvas.drawLines(mMinuteLines, 0, count * 4, mStyle.getMinuteHandPaint());
+        canvas.drawLines(mSecondLines, 0, count * 4, mStyle.getSecondHandPaint());
+        mFrameStats.recordFrame(System.nanoTime() - frameStartTime, false);
+    }
+
+    /**
+     * Writes the hand of clock {@code index} as a center to tip segment, from the shared geometry tables
+     */
+    private void fillHand(float[] lines, int index, float x, float y, float angle, float length) {
+        float center = mGeometry.getCenter();
+        lines[index * 4] = x + center;
+        lines[index * 4 + 1] = y + center;
+        lines[index * 4 + 2] = x + mGeometry.getX(angle, length);
+        lines[index * 4 + 3] = y + mGeometry.getY(angle, length);
+    }
+}
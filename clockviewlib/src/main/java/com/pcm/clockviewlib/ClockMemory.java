@@ -0,0 +1,64 @@
+package com.pcm.clockviewlib;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+
+/**
+ * How clocks answer memory pressure. Decoded backgrounds are dropped once the UI is
+ * hidden. Clocks that are off-screen let go of their dial at every level, clocks on
+ * screen only once the UI is hidden. A dial is recycled when its last clock lets go
+ * of it, and rebuilt like on first use on the next draw of a clock that needs it:
+ * plain at first, with its background once that is decoded again off the main thread.
+ * The shared caches are trimmed once per process, each clock only decides about its own dial.
+ */
+final class ClockMemory {
+    private static boolean isRegistered;
+
+    private ClockMemory() {
+    }
+
+    /**
+     * Registered by each attached clock with the application context, after {@link #register(Context)}
+     */
+    abstract static class Callbacks implements ComponentCallbacks2 {
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+        }
+
+        @Override
+        public void onLowMemory() {
+            onTrimMemory(TRIM_MEMORY_COMPLETE);
+        }
+    }
+
+    /**
+     * Trims the shared caches on memory pressure from now on. Must be called on the main thread,
+     * only the first call registers.
+     */
+    static void register(Context context) {
+        if (isRegistered) {
+            return;
+        }
+        isRegistered = true;
+        context.getApplicationContext().registerComponentCallbacks(new Callbacks() {
+            @Override
+            public void onTrimMemory(int level) {
+                trimCaches(level);
+            }
+        });
+    }
+
+    static void trimCaches(int level) {
+        BackgroundLoader.getInstance().trimMemory(level);
+    }
+
+    /**
+     * @param onScreen : whether any part of the clock can be seen right now
+     * @return whether a clock should let go of its dial at this trim level
+     */
+    static boolean shouldRelease(int level, boolean onScreen) {
+        return !onScreen || level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN;
+    }
+}
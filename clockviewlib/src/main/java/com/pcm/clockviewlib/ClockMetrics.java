@@ -0,0 +1,251 @@
+package com.pcm.clockviewlib;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Opt-in production metrics of one clock: draw time and tick lateness histograms,
+ * dropped and coalesced ticks, external time updates, dial cache hits and misses
+ * and bitmap memory.
+ * <p>
+ * Recording happens on the clock's drawing thread with primitive counters and a
+ * preallocated ring buffer, without locks or allocation. {@link #snapshot(Snapshot)}
+ * can be called from any thread, e.g. a telemetry job, into a reused {@link Snapshot}.
+ */
+public final class ClockMetrics {
+    /**
+     * Histogram bucket {@code i} counts values below {@code unit << i} and at least
+     * half that, bucket 0 everything below the unit, the last bucket everything above.
+     */
+    public static final int BUCKET_COUNT = 12;
+    public static final long DRAW_TIME_UNIT_NANOS = 125000;
+    public static final long TICK_LATENESS_UNIT_MILLIS = 1;
+    public static final int RECENT_TICK_COUNT = 64;
+
+    // bitmaps held by every clock in the process
+    static final AtomicLong sDialBytes = new AtomicLong();
+    static final AtomicLong sBackgroundBytes = new AtomicLong();
+
+    private final AtomicLongArray mDrawTimes = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLongArray mTickLateness = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLongArray mRecentTickLateness = new AtomicLongArray(RECENT_TICK_COUNT);
+    private final AtomicLong mFrameCount = new AtomicLong();
+    private final AtomicLong mTickCount = new AtomicLong();
+    private final AtomicLong mDroppedTickCount = new AtomicLong();
+    private final AtomicLong mCoalescedTickCount = new AtomicLong();
+    private final AtomicLong mTimeUpdateCount = new AtomicLong();
+    private final AtomicLong mCoalescedTimeUpdateCount = new AtomicLong();
+    private final AtomicLong mDialHitCount = new AtomicLong();
+    private final AtomicLong mDialMissCount = new AtomicLong();
+    private volatile long mDialBitmapBytes;
+    // single writer, so a plain read and ordered write is enough
+    private volatile long mLastTickSecond = -1;
+
+    /**
+     * Counts of a {@link ClockMetrics} at one point in time, reused between snapshots.
+     */
+    public static final class Snapshot {
+        private final long[] mDrawTimes = new long[BUCKET_COUNT];
+        private final long[] mTickLateness = new long[BUCKET_COUNT];
+        private final long[] mRecentTickLateness = new long[RECENT_TICK_COUNT];
+        private int mRecentTickCount;
+        private long mFrameCount;
+        private long mTickCount;
+        private long mDroppedTickCount;
+        private long mCoalescedTickCount;
+        private long mTimeUpdateCount;
+        private long mCoalescedTimeUpdateCount;
+        private long mDialHitCount;
+        private long mDialMissCount;
+        private long mDialBitmapBytes;
+        private long mTotalBitmapBytes;
+
+        /**
+         * @return frames per draw time bucket, see {@link #getBucketUpperBound(int, long)}
+         *         with {@link #DRAW_TIME_UNIT_NANOS}
+         */
+        public long[] getDrawTimeHistogram() {
+            return mDrawTimes;
+        }
+
+        /**
+         * @return ticks per lateness bucket, with {@link #TICK_LATENESS_UNIT_MILLIS}
+         */
+        public long[] getTickLatenessHistogram() {
+            return mTickLateness;
+        }
+
+        /**
+         * @return milliseconds after the wall-clock second of the most recent ticks,
+         *         the first {@link #getRecentTickCount()} entries oldest first
+         */
+        public long[] getRecentTickLateness() {
+            return mRecentTickLateness;
+        }
+
+        public int getRecentTickCount() {
+            return mRecentTickCount;
+        }
+
+        public long getFrameCount() {
+            return mFrameCount;
+        }
+
+        public long getTickCount() {
+            return mTickCount;
+        }
+
+        /**
+         * @return wall-clock seconds that passed without a tick
+         */
+        public long getDroppedTickCount() {
+            return mDroppedTickCount;
+        }
+
+        /**
+         * @return ticks that came before the previous one was drawn, and were drawn together
+         */
+        public long getCoalescedTickCount() {
+            return mCoalescedTickCount;
+        }
+
+        /**
+         * @return times set with {@link ClockView#setClockTime(long)}
+         */
+        public long getTimeUpdateCount() {
+            return mTimeUpdateCount;
+        }
+
+        /**
+         * @return time updates that came while a redraw for an earlier one was pending
+         */
+        public long getCoalescedTimeUpdateCount() {
+            return mCoalescedTimeUpdateCount;
+        }
+
+        public long getDialHitCount() {
+            return mDialHitCount;
+        }
+
+        public long getDialMissCount() {
+            return mDialMissCount;
+        }
+
+        /**
+         * @return bytes of the dial this clock draws, shared with clocks of the same style and size
+         */
+        public long getDialBitmapBytes() {
+            return mDialBitmapBytes;
+        }
+
+        /**
+         * @return bytes of every dial, hand sprite atlas and decoded background held in the process
+         */
+        public long getTotalBitmapBytes() {
+            return mTotalBitmapBytes;
+        }
+    }
+
+    /**
+     * @return exclusive upper bound of histogram bucket {@code index}, Long.MAX_VALUE for the last
+     */
+    public static long getBucketUpperBound(int index, long unit) {
+        return index == BUCKET_COUNT - 1 ? Long.MAX_VALUE : unit << index;
+    }
+
+    static int bucketOf(long value, long unit) {
+        long units = value / unit;
+        if (units <= 0) {
+            return 0;
+        }
+        return Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(units));
+    }
+
+    void recordFrame(long drawTimeNanos) {
+        mDrawTimes.incrementAndGet(bucketOf(drawTimeNanos, DRAW_TIME_UNIT_NANOS));
+        mFrameCount.incrementAndGet();
+    }
+
+    /**
+     * @param wallTimeMillis : wall-clock time the tick was handled at
+     * @param coalesced      : whether the previous tick is still waiting to be drawn
+     */
+    void recordTick(long wallTimeMillis, boolean coalesced) {
+        long second = wallTimeMillis / 1000;
+        long lateness = wallTimeMillis - second * 1000;
+        long lastSecond = mLastTickSecond;
+        if (lastSecond >= 0 && second - lastSecond > 1) {
+            mDroppedTickCount.addAndGet(second - lastSecond - 1);
+        }
+        mLastTickSecond = second;
+        if (coalesced) {
+            mCoalescedTickCount.incrementAndGet();
+        }
+        mTickLateness.incrementAndGet(bucketOf(lateness, TICK_LATENESS_UNIT_MILLIS));
+        long count = mTickCount.get();
+        mRecentTickLateness.set((int) (count % RECENT_TICK_COUNT), lateness);
+        mTickCount.set(count + 1);
+    }
+
+    /**
+     * Forgets the last tick, so the seconds until the next one are not counted as dropped.
+     * Called whenever the clock stops ticking or skips ticks on purpose.
+     */
+    void resetTicks() {
+        mLastTickSecond = -1;
+    }
+
+    /**
+     * Can be called from any thread
+     *
+     * @param coalesced : whether a redraw for an earlier update is still pending
+     */
+    void recordTimeUpdate(boolean coalesced) {
+        mTimeUpdateCount.incrementAndGet();
+        if (coalesced) {
+            mCoalescedTimeUpdateCount.incrementAndGet();
+        }
+    }
+
+    void recordDialAcquired(boolean hit, long bytes) {
+        if (hit) {
+            mDialHitCount.incrementAndGet();
+        } else {
+            mDialMissCount.incrementAndGet();
+        }
+        mDialBitmapBytes = bytes;
+    }
+
+    void recordDialReleased() {
+        mDialBitmapBytes = 0;
+    }
+
+    /**
+     * Copies the current counts into {@code out}, allocating nothing
+     *
+     * @return out
+     */
+    public Snapshot snapshot(Snapshot out) {
+        for (int index = 0; index < BUCKET_COUNT; index++) {
+            out.mDrawTimes[index] = mDrawTimes.get(index);
+            out.mTickLateness[index] = mTickLateness.get(index);
+        }
+        long tickCount = mTickCount.get();
+        int recent = (int) Math.min(tickCount, RECENT_TICK_COUNT);
+        for (int index = 0; index < recent; index++) {
+            out.mRecentTickLateness[index] = mRecentTickLateness.get((int) ((tickCount - recent + index) % RECENT_TICK_COUNT));
+        }
+        out.mRecentTickCount = recent;
+        out.mTickCount = tickCount;
+        out.mFrameCount = mFrameCount.get();
+        out.mDroppedTickCount = mDroppedTickCount.get();
+        out.mCoalescedTickCount = mCoalescedTickCount.get();
+        out.mTimeUpdateCount = mTimeUpdateCount.get();
+        out.mCoalescedTimeUpdateCount = mCoalescedTimeUpdateCount.get();
+        out.mDialHitCount = mDialHitCount.get();
+        out.mDialMissCount = mDialMissCount.get();
+        out.mDialBitmapBytes = mDialBitmapBytes;
+        out.mTotalBitmapBytes = sDialBytes.get() + sBackgroundBytes.get();
+        return out;
+    }
+}
@@ -0,0 +1,526 @@
+package com.pcm.clockviewlib;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.Looper;
+
+import java.util.TimeZone;
+
+/**
+ * Draws a clock onto any {@link Canvas}: the shared dial, the digital readout and
+ * the hands for a timestamp. It needs no View and no main thread, so it can render
+ * widget frames or export images from background jobs.
+ * <p>
+ * One instance must only be used by one thread at a time, separate instances can
+ * render concurrently. Off the main thread the face background is decoded on the
+ * calling thread, so the first frame already includes it.
+ * <p>
+ * Hands are drawn as vector paths by default. With {@link #RENDER_SPRITES} they are
+ * blitted from a {@link HandAtlas} rendered once per style and size, which is cheaper
+ * where the canvas is rasterized in software.
+ */
+public final class ClockRenderer {
+    /**
+     * Draw the hands as anti-aliased paths on every frame (default)
+     */
+    public static final int RENDER_VECTOR = 0;
+    /**
+     * Blit the hands from pre-rendered rotations, as vectors while sweeping or if they do not fit the budget
+     */
+    public static final int RENDER_SPRITES = 1;
+    /**
+     * Time a few frames with each of the other two and keep the faster, vectors on hardware canvases
+     */
+    public static final int RENDER_AUTO = 2;
+    public static final int DEFAULT_HOUR_SPRITE_COUNT = 720;
+    public static final long DEFAULT_SPRITE_BUDGET = 4 * 1024 * 1024;
+    // frames timed with each strategy before RENDER_AUTO picks one
+    private static final int AUTO_TRIAL_FRAMES = 16;
+    // extra pixel around every dirty area for anti-aliasing
+    private static final int AA_PADDING = 1;
+    private static final int READOUT_OFFSET = 60;
+
+    private final Resources mResources;
+    private ClockStyle mStyle;
+    private final ClockGeometry mGeometry = new ClockGeometry();
+    private final HandPath mSecondHand = new HandPath();
+    private final HandPath mMinuteHand = new HandPath();
+    private final HandPath mHourHand = new HandPath();
+    private final ClockTime mTime = new ClockTime(TimeZone.getDefault());
+    private final ClockTime mNextTime = new ClockTime(TimeZone.getDefault());
+    private final TimeFormatter mTimeFormatter = new TimeFormatter();
+    private boolean isTimeZoneExplicit;
+    private DialCache.Dial mDial;
+    private int mDialSize;
+    private boolean isDialDirty = true;
+    private Runnable mOnDialUpdated;
+    private ClockMetrics mMetrics;
+    private boolean isSecondHandShown = true;
+    private Canvas mFrameCanvas;
+    private float mDrawnSecondAngle = Float.NaN;
+    private float mDrawnMinuteAngle;
+    private float mDrawnHourAngle;
+    private int mDrawnReadout = -1;
+    private final RectF mDrawnReadoutBounds = new RectF();
+    private int mRenderStrategy = RENDER_VECTOR;
+    private int mHourSpriteCount = DEFAULT_HOUR_SPRITE_COUNT;
+    private long mSpriteBudget = DEFAULT_SPRITE_BUDGET;
+    private DialCache.Atlas mAtlas;
+    private HandAtlas mFrameAtlas;
+    private final Rect mSpriteSrc = new Rect();
+    private final Rect mSpriteDst = new Rect();
+    private int mFrameStrategy = RENDER_VECTOR;
+    // RENDER_AUTO trial: frames timed per strategy, hand draw time per strategy, and the pick once made
+    private int mAutoVectorFrameCount;
+    private int mAutoSpriteFrameCount;
+    private long mAutoVectorNanos;
+    private long mAutoSpriteNanos;
+    private int mAutoStrategy = RENDER_AUTO;
+
+    public ClockRenderer(Context context) {
+        this(context.getResources(), ClockStyle.getDefault());
+    }
+
+    public ClockRenderer(Resources resources, ClockStyle style) {
+        mResources = resources;
+        mStyle = style;
+        applyStyle();
+    }
+
+    /**
+     * @param style : shared look of the clock, see {@link ClockStyle}
+     */
+    public void setClockStyle(ClockStyle style) {
+        if (style == mStyle) {
+            return;
+        }
+        releaseDial();
+        mStyle = style;
+        applyStyle();
+        isDialDirty = true;
+    }
+
+    public ClockStyle getClockStyle() {
+        return mStyle;
+    }
+
+    private void applyStyle() {
+        mTimeFormatter.set24Hour(mStyle.is24HourFormat());
+        mTimeFormatter.setSecondsShown(mStyle.isSecondsShown());
+    }
+
+    /**
+     * @param size : width and height of the clock in pixels
+     */
+    public void setSize(int size) {
+        if (size == mGeometry.getSize()) {
+            return;
+        }
+        mGeometry.setSize(size);
+        releaseDial();
+        isDialDirty = true;
+    }
+
+    public int getSize() {
+        return mGeometry.getSize();
+    }
+
+    /**
+     * @param timeZone : time zone the clock shows, null to follow the device time zone (default)
+     */
+    public void setTimeZone(TimeZone timeZone) {
+        isTimeZoneExplicit = timeZone != null;
+        applyTimeZone(timeZone != null ? timeZone : TimeZone.getDefault());
+    }
+
+    /**
+     * Picks up a change of the device time zone, unless a zone was set with {@link #setTimeZone(TimeZone)}
+     *
+     * @return whether the clock shows another time zone now
+     */
+    boolean updateDefaultTimeZone() {
+        TimeZone timeZone = TimeZone.getDefault();
+        if (isTimeZoneExplicit || timeZone.getID().equals(mTime.getTimeZone().getID())) {
+            return false;
+        }
+        applyTimeZone(timeZone);
+        return true;
+    }
+
+    private void applyTimeZone(TimeZone timeZone) {
+        mTime.setTimeZone(timeZone);
+        mNextTime.setTimeZone(timeZone);
+    }
+
+    public TimeZone getTimeZone() {
+        return mTime.getTimeZone();
+    }
+
+    /**
+     * @param continuous : true to sweep the hands with the fraction of the second,
+     *                   false to step them once per second (default)
+     */
+    public void setContinuous(boolean continuous) {
+        mTime.setContinuous(continuous);
+        mNextTime.setContinuous(continuous);
+    }
+
+    /**
+     * @param shown : false to leave out the second hand, e.g. in ambient mode
+     */
+    public void setSecondHandShown(boolean shown) {
+        isSecondHandShown = shown;
+    }
+
+    /**
+     * @param strategy : {@link #RENDER_VECTOR}, {@link #RENDER_SPRITES} or {@link #RENDER_AUTO}
+     */
+    public void setRenderStrategy(int strategy) {
+        if (strategy == mRenderStrategy) {
+            return;
+        }
+        mRenderStrategy = strategy;
+        resetAutoStrategy();
+    }
+
+    public int getRenderStrategy() {
+        return mRenderStrategy;
+    }
+
+    /**
+     * @return how the hands of the last frame were drawn, {@link #RENDER_VECTOR} or {@link #RENDER_SPRITES}
+     */
+    public int getFrameRenderStrategy() {
+        return mFrameStrategy;
+    }
+
+    /**
+     * @param count : rotations of the hour hand sprite, 720 (default) is one per minute;
+     *              seconds and minutes always have 60
+     */
+    public void setHourSpriteCount(int count) {
+        mHourSpriteCount = Math.max(HandAtlas.MIN_HOUR_ROTATIONS, count);
+        releaseAtlas();
+        resetAutoStrategy();
+    }
+
+    /**
+     * Sprites are shared by every clock of the same style, size, count and budget. They are
+     * built off the calling thread, the hands are drawn as vectors until they are ready.
+     *
+     * @param bytes : most memory the hand sprites may take per style and size, the hour
+     *              rotations are halved until they fit, and the hands are drawn as vectors if
+     *              not even 60 do
+     */
+    public void setSpriteMemoryBudget(long bytes) {
+        mSpriteBudget = bytes;
+        releaseAtlas();
+        resetAutoStrategy();
+    }
+
+    /**
+     * @return bytes of the hand sprites in use, 0 when drawing vectors
+     */
+    public long getSpriteByteCount() {
+        HandAtlas atlas = mAtlas != null ? mAtlas.get() : null;
+        return atlas != null ? atlas.getByteCount() : 0;
+    }
+
+    private void releaseAtlas() {
+        if (mAtlas != null) {
+            mStyle.getDialCache().releaseAtlas(mDialSize, mAtlas);
+            mAtlas = null;
+        }
+    }
+
+    private void resetAutoStrategy() {
+        mAutoVectorFrameCount = 0;
+        mAutoSpriteFrameCount = 0;
+        mAutoVectorNanos = 0;
+        mAutoSpriteNanos = 0;
+        mAutoStrategy = RENDER_AUTO;
+    }
+
+    /**
+     * @param onDialUpdated : run on the main thread when the dial is redrawn with its background
+     */
+    void setOnDialUpdatedListener(Runnable onDialUpdated) {
+        mOnDialUpdated = onDialUpdated;
+    }
+
+    /**
+     * @param metrics : records dial cache hits and misses and the dial size, null to stop
+     */
+    void setMetrics(ClockMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    /**
+     * Lets go of the shared dial, it is picked up again on the next draw
+     */
+    public void release() {
+        releaseDial();
+        isDialDirty = true;
+    }
+
+    private void releaseDial() {
+        // goes with the dial
+        releaseAtlas();
+        resetAutoStrategy();
+        if (mDial != null) {
+            mStyle.getDialCache().release(mDialSize, mOnDialUpdated);
+            mDial = null;
+            if (mMetrics != null) {
+                mMetrics.recordDialReleased();
+            }
+        }
+        mDrawnSecondAngle = Float.NaN;
+    }
+
+    /**
+     * Picks up the dial shared by every clock of this style and size and builds the
+     * hands for the size. Everything that does not move is rendered into the dial once,
+     * so each frame only has to blit it and draw the hands.
+     *
+     * @return false if there is no size yet
+     */
+    private boolean ensureDial() {
+        if (!isDialDirty && mDial != null) {
+            return true;
+        }
+        int size = mGeometry.getSize();
+        if (size <= 0) {
+            return false;
+        }
+        releaseDial();
+        int backgroundId = mStyle.getBackgroundId();
+        if (backgroundId != -1 && Looper.myLooper() != Looper.getMainLooper()) {
+            BackgroundLoader.getInstance().getOrDecode(mResources, backgroundId, size);
+        }
+        boolean isCached = mMetrics != null && mStyle.getDialCache().contains(size);
+        mDial = mStyle.getDialCache().acquire(mResources, size, mOnDialUpdated);
+        mDialSize = size;
+        if (mMetrics != null) {
+            mMetrics.recordDialAcquired(isCached, mDial.getBitmap().getByteCount());
+        }
+        mSecondHand.build(mStyle.getSecondHandShape(), mGeometry.getSecondHandLength(), ClockStyle.SECOND_HAND_WIDTH);
+        mMinuteHand.build(mStyle.getMinuteHandShape(), mGeometry.getMinuteHandLength(), ClockStyle.MINUTE_HAND_WIDTH);
+        mHourHand.build(mStyle.getHourHandShape(), mGeometry.getHourHandLength(), ClockStyle.HOUR_HAND_WIDTH);
+        isDialDirty = false;
+        return true;
+    }
+
+    /**
+     * Draws the clock at {@code size} pixels in the top left corner of the canvas
+     */
+    public void draw(Canvas canvas, int size, ClockStyle style, long timeInMillis) {
+        setClockStyle(style);
+        setSize(size);
+        draw(canvas, timeInMillis);
+    }
+
+    /**
+     * @param timeInMillis : time since the epoch (UTC) to show
+     */
+    public void draw(Canvas canvas, long timeInMillis) {
+        if (!ensureDial()) {
+            return;
+        }
+        mTime.set(timeInMillis);
+        canvas.drawBitmap(mDial.getBitmap(), 0, 0, null);
+        drawTimeOnCanvas(canvas);
+        mFrameStrategy = chooseStrategy(canvas);
+        boolean isAutoTrial = mRenderStrategy == RENDER_AUTO && mAutoStrategy == RENDER_AUTO;
+        long start = isAutoTrial ? System.nanoTime() : 0;
+        if (mFrameStrategy == RENDER_SPRITES) {
+            drawSprites(canvas);
+        } else {
+            drawHands(canvas);
+        }
+        if (isAutoTrial) {
+            recordAutoTrial(mFrameStrategy, System.nanoTime() - start);
+        }
+        mDrawnSecondAngle = mTime.getSecondAngle();
+        mDrawnMinuteAngle = mTime.getMinuteAngle();
+        mDrawnHourAngle = mTime.getHourAngle();
+    }
+
+    /**
+     * Renders one frame per timestamp into bitmaps from {@code pool}. The caller owns
+     * the returned bitmaps and hands them back with {@link ClockBitmapPool#recycle(Bitmap)}
+     * once they are used, so the next batch reuses them.
+     */
+    public Bitmap[] renderFrames(long[] timestamps, ClockBitmapPool pool) {
+        Bitmap[] frames = new Bitmap[timestamps.length];
+        int size = getSize();
+        if (size <= 0) {
+            return frames;
+        }
+        if (mFrameCanvas == null) {
+            mFrameCanvas = new Canvas();
+        }
+        for (int index = 0; index < timestamps.length; index++) {
+            Bitmap frame = pool.obtain(size);
+            frame.eraseColor(Color.TRANSPARENT);
+            mFrameCanvas.setBitmap(frame);
+            draw(mFrameCanvas, timestamps[index]);
+            frames[index] = frame;
+        }
+        mFrameCanvas.setBitmap(null);
+        return frames;
+    }
+
+    /**
+     * Adds the area that changes between the last drawn frame and {@code timeInMillis}:
+     * old and new position of every moving hand, and the readout if its text changes.
+     *
+     * @return false if nothing was drawn since the style or size changed, i.e. everything changes
+     */
+    boolean getDirtyBounds(long timeInMillis, RectF out) {
+        if (Float.isNaN(mDrawnSecondAngle) || isDialDirty) {
+            return false;
+        }
+        mNextTime.set(timeInMillis);
+
+        float center = mGeometry.getCenter();
+        float secondAngle = mNextTime.getSecondAngle();
+        if (isSecondHandShown && secondAngle != mDrawnSecondAngle) {
+            mSecondHand.addBounds(mDrawnSecondAngle, center, AA_PADDING, out);
+            mSecondHand.addBounds(secondAngle, center, AA_PADDING, out);
+        }
+        float minuteAngle = mNextTime.getMinuteAngle();
+        if (minuteAngle != mDrawnMinuteAngle) {
+            mMinuteHand.addBounds(mDrawnMinuteAngle, center, AA_PADDING, out);
+            mMinuteHand.addBounds(minuteAngle, center, AA_PADDING, out);
+        }
+        float hourAngle = mNextTime.getHourAngle();
+        if (hourAngle != mDrawnHourAngle) {
+            mHourHand.addBounds(mDrawnHourAngle, center, AA_PADDING, out);
+            mHourHand.addBounds(hourAngle, center, AA_PADDING, out);
+        }
+        if (mStyle.isDigitalTimeShown() && getReadoutKey(mNextTime) != mDrawnReadout) {
+            out.union(mDrawnReadoutBounds);
+            int length = mTimeFormatter.format(mNextTime);
+            float width = mTimeFormatter.measure(length, mStyle.getReadoutCharWidths());
+            float baseline = center + READOUT_OFFSET;
+            out.union(center - width / 2f - AA_PADDING, baseline + mStyle.getReadoutAscent() - AA_PADDING,
+                    center + width / 2f + AA_PADDING, baseline + mStyle.getReadoutDescent() + AA_PADDING);
+        }
+        return true;
+    }
+
+    /**
+     * @return a value that changes exactly when the readout text does
+     */
+    private int getReadoutKey(ClockTime time) {
+        int key = time.getHour() * 60 + time.getMinute();
+        return mTimeFormatter.isSecondsShown() ? key * 60 + time.getSecond() : key;
+    }
+
+    private void drawTimeOnCanvas(Canvas canvas) {
+        if (!mStyle.isDigitalTimeShown()) {
+            return;
+        }
+        float center = mGeometry.getCenter();
+        float baseline = center + READOUT_OFFSET;
+        int length = mTimeFormatter.format(mTime);
+        float width = mTimeFormatter.measure(length, mStyle.getReadoutCharWidths());
+        canvas.drawText(mTimeFormatter.getBuffer(), 0, length, center - width / 2f, baseline, mStyle.getReadoutPaint());
+        mDrawnReadout = getReadoutKey(mTime);
+        mDrawnReadoutBounds.set(center - width / 2f - AA_PADDING, baseline + mStyle.getReadoutAscent() - AA_PADDING,
+                center + width / 2f + AA_PADDING, baseline + mStyle.getReadoutDescent() + AA_PADDING);
+    }
+
+    /**
+     * @return the strategy for this frame: vectors while sweeping, since sprites only have
+     * whole steps, while the sprites are being built, and if they do not fit the budget
+     */
+    private int chooseStrategy(Canvas canvas) {
+        mFrameAtlas = null;
+        if (mRenderStrategy == RENDER_VECTOR || mTime.isContinuous()) {
+            return RENDER_VECTOR;
+        }
+        if (mRenderStrategy == RENDER_AUTO) {
+            if (mAutoStrategy == RENDER_AUTO && canvas.isHardwareAccelerated()) {
+                // the GPU rasterizes paths anyway, timing would only measure recording
+                mAutoStrategy = RENDER_VECTOR;
+                releaseAtlas();
+            }
+            if (mAutoStrategy == RENDER_VECTOR) {
+                return RENDER_VECTOR;
+            }
+        }
+        if (mAtlas == null) {
+            mAtlas = mStyle.getDialCache().acquireAtlas(mDialSize, mHourSpriteCount, mSpriteBudget);
+        }
+        mFrameAtlas = mAtlas != null ? mAtlas.get() : null;
+        if (mRenderStrategy == RENDER_AUTO && mAutoStrategy == RENDER_AUTO && mAutoVectorFrameCount < AUTO_TRIAL_FRAMES) {
+            // vectors are timed first, while the sprites are built
+            return RENDER_VECTOR;
+        }
+        return mFrameAtlas != null ? RENDER_SPRITES : RENDER_VECTOR;
+    }
+
+    /**
+     * Adds a frame to the trial of {@link #RENDER_AUTO}: the first frames are drawn with
+     * vectors, as many with sprites once they are built, then the faster is kept until the
+     * style, size or sprite settings change. Sprites that do not fit the budget lose right away.
+     */
+    private void recordAutoTrial(int strategy, long nanos) {
+        if (strategy == RENDER_SPRITES) {
+            mAutoSpriteNanos += nanos;
+            mAutoSpriteFrameCount++;
+        } else if (mAutoVectorFrameCount < AUTO_TRIAL_FRAMES) {
+            mAutoVectorNanos += nanos;
+            mAutoVectorFrameCount++;
+        }
+        boolean isOverBudget = mAtlas == null || mAtlas.isBuilt() && mAtlas.get() == null;
+        if (mAutoVectorFrameCount >= AUTO_TRIAL_FRAMES && isOverBudget) {
+            mAutoStrategy = RENDER_VECTOR;
+        } else if (mAutoSpriteFrameCount >= AUTO_TRIAL_FRAMES) {
+            mAutoStrategy = mAutoSpriteNanos < mAutoVectorNanos ? RENDER_SPRITES : RENDER_VECTOR;
+        }
+        if (mAutoStrategy == RENDER_VECTOR) {
+            releaseAtlas();
+        }
+    }
+
+    /**
+     * Blits each hand from the atlas, three bitmap draws with no path to rasterize
+     */
+    private void drawSprites(Canvas canvas) {
+        HandAtlas atlas = mFrameAtlas;
+        atlas.draw(canvas, HandAtlas.HOUR, mTime.getHourAngle(), mStyle.getHourHandPaint(), mSpriteSrc, mSpriteDst);
+        atlas.draw(canvas, HandAtlas.MINUTE, mTime.getMinuteAngle(), mStyle.getMinuteHandPaint(), mSpriteSrc, mSpriteDst);
+        if (isSecondHandShown) {
+            atlas.draw(canvas, HandAtlas.SECOND, mTime.getSecondAngle(), mStyle.getSecondHandPaint(), mSpriteSrc, mSpriteDst);
+        }
+    }
+
+    /**
+     * Rotates the canvas around the center from hand to hand, each hand is drawn
+     * as built with its own paint, so no paint is changed and nothing is computed per hand
+     */
+    private void drawHands(Canvas canvas) {
+        float center = mGeometry.getCenter();
+        float hourAngle = mTime.getHourAngle();
+        float minuteAngle = mTime.getMinuteAngle();
+        float secondAngle = mTime.getSecondAngle();
+        int saveCount = canvas.save();
+        canvas.translate(center, center);
+        canvas.rotate(hourAngle);
+        mHourHand.draw(canvas, mStyle.getHourHandPaint());
+        canvas.rotate(minuteAngle - hourAngle);
+        mMinuteHand.draw(canvas, mStyle.getMinuteHandPaint());
+        if (isSecondHandShown) {
+            canvas.rotate(secondAngle - minuteAngle);
+            mSecondHand.draw(canvas, mStyle.getSecondHandPaint());
+        }
+        canvas.restoreToCount(saveCount);
+    }
+}
@@ -0,0 +1,421 @@
+package com.pcm.clockviewlib;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.support.annotation.Nullable;
+import android.util.AttributeSet;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+/**
+ * Immutable look of a clock: colors, hand shapes, face type, background, dial format and readout format.
+ * <p>
+ * Instances are interned, every clock with the same look shares one instance and
+ * with it the prepared paints, readout text metrics and the {@link DialCache}.
+ * The {@code with...} methods never modify a style, they return the shared
+ * instance for the changed look.
+ */
+public final class ClockStyle {
+    static final int SECOND_HAND_WIDTH = 2;
+    static final int MINUTE_HAND_WIDTH = 4;
+    static final int HOUR_HAND_WIDTH = 6;
+    static final int HAND_CAP_RADIUS = 4;
+    static final int FACE_STROKE_WIDTH = 2;
+    static final int TEXT_SIZE = 36;
+
+    private static final int DEFAULT_SECOND_HAND_COLOR = 0xFF2E7D32;
+    private static final int DEFAULT_MINUTE_HAND_COLOR = 0xFFEF6C00;
+    private static final int DEFAULT_HOUR_HAND_COLOR = 0xFFF44336;
+    private static final int DEFAULT_FACE_COLOR = 0xFF1565C0;
+
+    private static final WeakHashMap<ClockStyle, WeakReference<ClockStyle>> sInterned = new WeakHashMap<>();
+
+    private final int mSecondHandColor;
+    private final int mMinuteHandColor;
+    private final int mHourHandColor;
+    private final int mFaceColor;
+    private final int mFace;
+    private final int mBackgroundId;
+    private final boolean isDigitalTimeShown;
+    private final boolean is24HourFormat;
+    private final boolean isSecondsShown;
+    private final HandShape mSecondHandShape;
+    private final HandShape mMinuteHandShape;
+    private final HandShape mHourHandShape;
+    private final int mDialColor;
+
+    // prepared once, when the instance becomes the interned one
+    private Paint mFacePaint;
+    private Paint mLabelPaint;
+    private Paint mReadoutPaint;
+    private Paint mSecondHandPaint;
+    private Paint mMinuteHandPaint;
+    private Paint mHourHandPaint;
+    private float[] mReadoutCharWidths;
+    private float mReadoutAscent;
+    private float mReadoutDescent;
+    private DialCache mDialCache;
+
+    private ClockStyle(int secondHandColor, int minuteHandColor, int hourHandColor, int faceColor, int face,
+                       int backgroundId, boolean digitalTimeShown, boolean is24HourFormat, boolean secondsShown,
+                       HandShape secondHandShape, HandShape minuteHandShape, HandShape hourHandShape, int dialColor) {
+        mSecondHandColor = secondHandColor;
+        mMinuteHandColor = minuteHandColor;
+        mHourHandColor = hourHandColor;
+        mFaceColor = faceColor;
+        mFace = face;
+        mBackgroundId = backgroundId;
+        isDigitalTimeShown = digitalTimeShown;
+        this.is24HourFormat = is24HourFormat;
+        isSecondsShown = secondsShown;
+        mSecondHandShape = secondHandShape;
+        mMinuteHandShape = minuteHandShape;
+        mHourHandShape = hourHandShape;
+        mDialColor = dialColor;
+    }
+
+    public static ClockStyle getDefault() {
+        return new ClockStyle(DEFAULT_SECOND_HAND_COLOR, DEFAULT_MINUTE_HAND_COLOR, DEFAULT_HOUR_HAND_COLOR,
+                DEFAULT_FACE_COLOR, ClockView.FACE_DIGITAL, -1, true, true, true,
+                HandShape.LINE, HandShape.CAPPED_LINE, HandShape.CAPPED_LINE, Color.TRANSPARENT).intern();
+    }
+
+    /**
+     * Resolves the {@code ClockView} attributes into the shared style for them
+     */
+    static ClockStyle obtain(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.ClockView, defStyleAttr, 0);
+        ClockStyle style = obtain(typedArray);
+        typedArray.recycle();
+        return style;
+    }
+
+    /**
+     * Same as {@link #obtain(Context, AttributeSet, int)} for a view that reads more of the
+     * {@code ClockView} attributes in the same pass
+     *
+     * @param typedArray : obtained for {@code R.styleable.ClockView}, the caller recycles it
+     */
+    static ClockStyle obtain(TypedArray typedArray) {
+        ClockStyle style = new ClockStyle(
+                typedArray.getColor(R.styleable.ClockView_second_hand_color, DEFAULT_SECOND_HAND_COLOR),
+                typedArray.getColor(R.styleable.ClockView_minute_hand_color, DEFAULT_MINUTE_HAND_COLOR),
+                typedArray.getColor(R.styleable.ClockView_hour_hand_color, DEFAULT_HOUR_HAND_COLOR),
+                typedArray.getColor(R.styleable.ClockView_clock_face_color, DEFAULT_FACE_COLOR),
+                typedArray.getInt(R.styleable.ClockView_clock_face, ClockView.FACE_DIGITAL),
+                typedArray.getResourceId(R.styleable.ClockView_clock_face_background, -1),
+                typedArray.getInt(R.styleable.ClockView_show_digital_time, 1) > 0,
+                typedArray.getInt(R.styleable.ClockView_time_format, 24) == 24,
+                typedArray.getInt(R.styleable.ClockView_show_seconds, 1) > 0,
+                HandShape.LINE, HandShape.CAPPED_LINE, HandShape.CAPPED_LINE,
+                typedArray.getColor(R.styleable.ClockView_opaque_dial_color, Color.TRANSPARENT));
+        return style.intern();
+    }
+
+    /**
+     * @return the shared instance equal to this one, preparing this one if it is the first
+     */
+    private ClockStyle intern() {
+        synchronized (sInterned) {
+            WeakReference<ClockStyle> reference = sInterned.get(this);
+            ClockStyle interned = reference != null ? reference.get() : null;
+            if (interned != null) {
+                return interned;
+            }
+            prepare();
+            sInterned.put(this, new WeakReference<>(this));
+            return this;
+        }
+    }
+
+    private void prepare() {
+        mFacePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mFacePaint.setColor(mFaceColor);
+        mFacePaint.setStrokeWidth(FACE_STROKE_WIDTH);
+        mFacePaint.setStyle(Paint.Style.STROKE);
+        mFacePaint.setStrokeCap(Paint.Cap.ROUND);
+
+        // template for the face labels, FaceLabels sizes a copy per dial size
+        mLabelPaint = new Paint(mFacePaint);
+        mLabelPaint.setTextSize(TEXT_SIZE);
+
+        mReadoutPaint = new Paint(mFacePaint);
+        mReadoutPaint.setTextSize(TEXT_SIZE);
+        mReadoutPaint.setTextAlign(Paint.Align.LEFT);
+
+        mSecondHandPaint = createHandPaint(mSecondHandColor, SECOND_HAND_WIDTH, mSecondHandShape);
+        mMinuteHandPaint = createHandPaint(mMinuteHandColor, MINUTE_HAND_WIDTH, mMinuteHandShape);
+        mHourHandPaint = createHandPaint(mHourHandColor, HOUR_HAND_WIDTH, mHourHandShape);
+
+        // advance width of every char the readout can show, so it is centered without measuring
+        char[] chars = TimeFormatter.ALPHABET.toCharArray();
+        float[] widths = new float[chars.length];
+        mReadoutPaint.getTextWidths(chars, 0, chars.length, widths);
+        mReadoutCharWidths = new float[128];
+        for (int index = 0; index < chars.length; index++) {
+            mReadoutCharWidths[chars[index]] = widths[index];
+        }
+        Paint.FontMetrics fontMetrics = mReadoutPaint.getFontMetrics();
+        mReadoutAscent = fontMetrics.ascent - mReadoutPaint.getStrokeWidth();
+        mReadoutDescent = fontMetrics.descent + mReadoutPaint.getStrokeWidth();
+
+        mDialCache = new DialCache(this);
+    }
+
+    private static Paint createHandPaint(int color, int width, HandShape shape) {
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+        paint.setColor(color);
+        paint.setStrokeWidth(width);
+        paint.setStyle(shape.isFilled() ? Paint.Style.FILL : Paint.Style.STROKE);
+        paint.setStrokeCap(Paint.Cap.ROUND);
+        return paint;
+    }
+
+    public ClockStyle withSecondHandColor(int color) {
+        return new ClockStyle(color, mMinuteHandColor, mHourHandColor, mFaceColor, mFace,
+                mBackgroundId, isDigitalTimeShown, is24HourFormat, isSecondsShown,
+                mSecondHandShape, mMinuteHandShape, mHourHandShape, mDialColor).intern();
+    }
+
+    public ClockStyle withMinuteHandColor(int color) {
+        return new ClockStyle(mSecondHandColor, color, mHourHandColor, mFaceColor, mFace,
+                mBackgroundId, isDigitalTimeShown, is24HourFormat, isSecondsShown,
+                mSecondHandShape, mMinuteHandShape, mHourHandShape, mDialColor).intern();
+    }
+
+    public ClockStyle withHourHandColor(int color) {
+        return new ClockStyle(mSecondHandColor, mMinuteHandColor, color, mFaceColor, mFace,
+                mBackgroundId, isDigitalTimeShown, is24HourFormat, isSecondsShown,
+                mSecondHandShape, mMinuteHandShape, mHourHandShape, mDialColor).intern();
+    }
+
+    public ClockStyle withFaceColor(int color) {
+        return new ClockStyle(mSecondHandColor, mMinuteHandColor, mHourHandColor, color, mFace,
+                mBackgroundId, isDigitalTimeShown, is24HourFormat, isSecondsShown,
+                mSecondHandShape, mMinuteHandShape, mHourHandShape, mDialColor).intern();
+    }
+
+    /**
+     * @param face : one of {@link ClockView#FACE_DEFAULT}, {@link ClockView#FACE_DIGITAL} or {@link ClockView#FACE_ROMAN}
+     */
+    public ClockStyle withFace(int face) {
+        return new ClockStyle(mSecondHandColor, mMinuteHandColor, mHourHandColor, mFaceColor, face,
+                mBackgroundId, isDigitalTimeShown, is24HourFormat, isSecondsShown,
+                mSecondHandShape, mMinuteHandShape, mHourHandShape, mDialColor).intern();
+    }
+
+    /**
+     * @param resId : drawable resource id, or -1 for no background
+     */
+    public ClockStyle withBackground(int resId) {
+        return new ClockStyle(mSecondHandColor, mMinuteHandColor, mHourHandColor, mFaceColor, mFace,
+                resId, isDigitalTimeShown, is24HourFormat, isSecondsShown,
+                mSecondHandShape, mMinuteHandShape, mHourHandShape, mDialColor).intern();
+    }
+
+    public ClockStyle withDigitalTimeShown(boolean shown) {
+        return new ClockStyle(mSecondHandColor, mMinuteHandColor, mHourHandColor, mFaceColor, mFace,
+                mBackgroundId, shown, is24HourFormat, isSecondsShown,
+                mSecondHandShape, mMinuteHandShape, mHourHandShape, mDialColor).intern();
+    }
+
+    public ClockStyle with24HourFormat(boolean is24Hour) {
+        return new ClockStyle(mSecondHandColor, mMinuteHandColor, mHourHandColor, mFaceColor, mFace,
+                mBackgroundId, isDigitalTimeShown, is24Hour, isSecondsShown,
+                mSecondHandShape, mMinuteHandShape, mHourHandShape, mDialColor).intern();
+    }
+
+    public ClockStyle withSecondsShown(boolean shown) {
+        return new ClockStyle(mSecondHandColor, mMinuteHandColor, mHourHandColor, mFaceColor, mFace,
+                mBackgroundId, isDigitalTimeShown, is24HourFormat, shown,
+                mSecondHandShape, mMinuteHandShape, mHourHandShape, mDialColor).intern();
+    }
+
+    /**
+     * @param secondHandShape : e.g. {@link HandShape#LINE} (default) or a custom shape
+     * @param minuteHandShape : e.g. {@link HandShape#CAPPED_LINE} (default)
+     * @param hourHandShape   : e.g. {@link HandShape#CAPPED_LINE} (default)
+     */
+    public ClockStyle withHandShapes(HandShape secondHandShape, HandShape minuteHandShape, HandShape hourHandShape) {
+        return new ClockStyle(mSecondHandColor, mMinuteHandColor, mHourHandColor, mFaceColor, mFace,
+                mBackgroundId, isDigitalTimeShown, is24HourFormat, isSecondsShown,
+                secondHandShape, minuteHandShape, hourHandShape, mDialColor).intern();
+    }
+
+    /**
+     * Renders the dials as {@link Bitmap.Config#RGB_565}, half the memory of translucent
+     * ARGB_8888 dials, on top of {@code color}. Use it when the clock sits on a plain
+     * background of that color.
+     *
+     * @param color : what is behind the clock, {@link Color#TRANSPARENT} for translucent dials (default)
+     */
+    public ClockStyle withOpaqueDial(int color) {
+        return new ClockStyle(mSecondHandColor, mMinuteHandColor, mHourHandColor, mFaceColor, mFace,
+                mBackgroundId, isDigitalTimeShown, is24HourFormat, isSecondsShown,
+                mSecondHandShape, mMinuteHandShape, mHourHandShape, color).intern();
+    }
+
+    /**
+     * @return the low power look of this style for ambient displays: gray instead of the colors,
+     * line hands, no background and no seconds in the digital time
+     */
+    public ClockStyle toAmbient() {
+        return new ClockStyle(toGray(mSecondHandColor), toGray(mMinuteHandColor), toGray(mHourHandColor), toGray(mFaceColor),
+                mFace, -1, isDigitalTimeShown, is24HourFormat, false,
+                HandShape.LINE, HandShape.CAPPED_LINE, HandShape.CAPPED_LINE, toGray(mDialColor)).intern();
+    }
+
+    private static int toGray(int color) {
+        int luminance = (Color.red(color) * 299 + Color.green(color) * 587 + Color.blue(color) * 114) / 1000;
+        return Color.argb(Color.alpha(color), luminance, luminance, luminance);
+    }
+
+    public int getSecondHandColor() {
+        return mSecondHandColor;
+    }
+
+    public int getMinuteHandColor() {
+        return mMinuteHandColor;
+    }
+
+    public int getHourHandColor() {
+        return mHourHandColor;
+    }
+
+    public int getFaceColor() {
+        return mFaceColor;
+    }
+
+    public int getFace() {
+        return mFace;
+    }
+
+    public int getBackgroundId() {
+        return mBackgroundId;
+    }
+
+    public boolean isDigitalTimeShown() {
+        return isDigitalTimeShown;
+    }
+
+    public boolean is24HourFormat() {
+        return is24HourFormat;
+    }
+
+    public boolean isSecondsShown() {
+        return isSecondsShown;
+    }
+
+    public HandShape getSecondHandShape() {
+        return mSecondHandShape;
+    }
+
+    public HandShape getMinuteHandShape() {
+        return mMinuteHandShape;
+    }
+
+    public HandShape getHourHandShape() {
+        return mHourHandShape;
+    }
+
+    /**
+     * @return color the opaque dials are drawn on, {@link Color#TRANSPARENT} for translucent dials
+     */
+    public int getDialColor() {
+        return mDialColor;
+    }
+
+    boolean isDialOpaque() {
+        return Color.alpha(mDialColor) != 0;
+    }
+
+    Bitmap.Config getDialBitmapConfig() {
+        return isDialOpaque() ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+    }
+
+    Paint getFacePaint() {
+        return mFacePaint;
+    }
+
+    Paint getLabelPaint() {
+        return mLabelPaint;
+    }
+
+    Paint getReadoutPaint() {
+        return mReadoutPaint;
+    }
+
+    Paint getSecondHandPaint() {
+        return mSecondHandPaint;
+    }
+
+    Paint getMinuteHandPaint() {
+        return mMinuteHandPaint;
+    }
+
+    Paint getHourHandPaint() {
+        return mHourHandPaint;
+    }
+
+    float[] getReadoutCharWidths() {
+        return mReadoutCharWidths;
+    }
+
+    float getReadoutAscent() {
+        return mReadoutAscent;
+    }
+
+    float getReadoutDescent() {
+        return mReadoutDescent;
+    }
+
+    DialCache getDialCache() {
+        return mDialCache;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ClockStyle)) {
+            return false;
+        }
+        ClockStyle style = (ClockStyle) o;
+        return mSecondHandColor == style.mSecondHandColor
+                && mMinuteHandColor == style.mMinuteHandColor
+                && mHourHandColor == style.mHourHandColor
+                && mFaceColor == style.mFaceColor
+                && mFace == style.mFace
+                && mBackgroundId == style.mBackgroundId
+                && isDigitalTimeShown == style.isDigitalTimeShown
+                && is24HourFormat == style.is24HourFormat
+                && isSecondsShown == style.isSecondsShown
+                && mSecondHandShape.equals(style.mSecondHandShape)
+                && mMinuteHandShape.equals(style.mMinuteHandShape)
+                && mHourHandShape.equals(style.mHourHandShape)
+                && mDialColor == style.mDialColor;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mSecondHandColor;
+        result = 31 * result + mMinuteHandColor;
+        result = 31 * result + mHourHandColor;
+        result = 31 * result + mFaceColor;
+        result = 31 * result + mFace;
+        result = 31 * result + mBackgroundId;
+        result = 31 * result + (isDigitalTimeShown ? 1 : 0);
+        result = 31 * result + (is24HourFormat ? 1 : 0);
+        result = 31 * result + (isSecondsShown ? 1 : 0);
+        result = 31 * result + mSecondHandShape.hashCode();
+        result = 31 * result + mMinuteHandShape.hashCode();
+        result = 31 * result + mHourHandShape.hashCode();
+        result = 31 * result + mDialColor;
+        return result;
+    }
+}
@@ -0,0 +1,405 @@
+package com.pcm.clockviewlib;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.SurfaceTexture;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.util.AttributeSet;
+import android.view.TextureView;
+import android.view.View;
+
+import java.util.TimeZone;
+
+/**
+ * Clock drawn by a {@link ClockRenderer} on its own render thread into a
+ * {@link TextureView}, so it keeps ticking while the main thread is busy.
+ * <p>
+ * Each frame locks only the area the hands move through. Rendering starts when the
+ * surface is available and stops when it is destroyed, and pauses while the view is
+ * hidden or the screen is off. Everything the renderer owns is only touched on the
+ * render thread, setters post their change there.
+ */
+public class ClockTextureView extends TextureView implements TextureView.SurfaceTextureListener {
+    private static final long TICK_INTERVAL = 1000;
+    private static final int DEFAULT_SWEEP_FPS = 60;
+    private final ClockRenderer mRenderer;
+    private final Object mSurfaceLock = new Object();
+    private boolean isSurfaceAvailable;
+    private volatile Handler mRenderHandler;
+    private volatile TimeSource mTimeSource = SystemTimeSource.getInstance();
+    private volatile boolean isSweepMode;
+    // set on the main thread: in a visible window, shown, and the screen is on
+    private volatile boolean isVisibleOnScreen;
+    private volatile int mSweepFps = DEFAULT_SWEEP_FPS;
+    private volatile OnFrameMissedListener mFrameMissedListener;
+    // render thread only
+    private long mFrameTime;
+    private int mWidth;
+    private int mHeight;
+    private boolean isFullFrame = true;
+    private final RectF mDirtyBounds = new RectF();
+    private final Rect mDirtyRect = new Rect();
+    private volatile long mFrameCount;
+    private volatile long mMissedFrameCount;
+    private final Rect mVisibleRect = new Rect();
+    private final ClockMemory.Callbacks mMemoryCallbacks = new ClockMemory.Callbacks() {
+        @Override
+        public void onTrimMemory(int level) {
+            boolean onScreen = getWindowVisibility() == VISIBLE && isShown() && getLocalVisibleRect(mVisibleRect);
+            if (ClockMemory.shouldRelease(level, onScreen)) {
+                postToRenderThread(mReleaseDial);
+            }
+        }
+    };
+
+    private final Runnable mFrame = new Runnable() {
+        @Override
+        public void run() {
+            drawFrame();
+            scheduleNextFrame();
+        }
+    };
+
+    private final Runnable mRedraw = new Runnable() {
+        @Override
+        public void run() {
+            Handler handler = mRenderHandler;
+            if (handler == null) {
+                return;
+            }
+            isFullFrame = true;
+            handler.removeCallbacks(mFrame);
+            mFrame.run();
+        }
+    };
+
+    private final Runnable mUpdateTimeZone = new Runnable() {
+        @Override
+        public void run() {
+            if (mRenderer.updateDefaultTimeZone()) {
+                mRedraw.run();
+            }
+        }
+    };
+
+    // main thread, tells the render thread about device time zone changes
+    private final Runnable mTimeZoneListener = new Runnable() {
+        @Override
+        public void run() {
+            postToRenderThread(mUpdateTimeZone);
+        }
+    };
+
+    // main thread, pauses or resumes rendering when the screen turns off or on
+    private final Runnable mScreenListener = new Runnable() {
+        @Override
+        public void run() {
+            updateVisibleOnScreen();
+        }
+    };
+
+    private final Runnable mReleaseDial = new Runnable() {
+        @Override
+        public void run() {
+            // picked up again by the next frame
+            mRenderer.release();
+            isFullFrame = true;
+        }
+    };
+
+    /**
+     * Called on the render thread when frames come later than their deadline
+     */
+    public interface OnFrameMissedListener {
+        /**
+         * @param missedFrames : frames skipped since the previous one
+         */
+        void onFrameMissed(int missedFrames);
+    }
+
+    public ClockTextureView(Context context) {
+        this(context, null);
+    }
+
+    public ClockTextureView(Context context, @Nullable AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public ClockTextureView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        mRenderer = new ClockRenderer(getResources(), ClockStyle.obtain(context, attrs, defStyleAttr));
+        mRenderer.setOnDialUpdatedListener(new Runnable() {
+            @Override
+            public void run() {
+                postToRenderThread(mRedraw);
+            }
+        });
+        setOpaque(false);
+        setSurfaceTextureListener(this);
+    }
+
+    /**
+     * @param style : shared look of the clock, see {@link ClockStyle}
+     */
+    public void setClockStyle(final ClockStyle style) {
+        postToRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mRenderer.setClockStyle(style);
+                mRedraw.run();
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+                mRenderer.setClockStyle(style);
+            }
+        });
+    }
+
+    /**
+     * @param timeZone : time zone the clock shows, null to follow the device time zone (default)
+     */
+    public void setTimeZone(final TimeZone timeZone) {
+        postToRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mRenderer.setTimeZone(timeZone);
+                mRedraw.run();
+            }
+        }, new Runnable() {
+            @Override
+            public void run() {
+                mRenderer.setTimeZone(timeZone);
+            }
+        });
+    }
+
+    /**
+     * @param timeSource : where the clock reads the time from, {@link SystemTimeSource} by default.
+     *                   It is read on the render thread.
+     */
+    public void setTimeSource(TimeSource timeSource) {
+        mTimeSource = timeSource;
+        postToRenderThread(mRedraw);
+    }
+
+    /**
+     * @param sweep : true to move the hands continuously at {@link #setSweepFps(int)}, false to step once per second
+     */
+    public void setSweepMode(boolean sweep) {
+        isSweepMode = sweep;
+        postToRenderThread(mRedraw);
+    }
+
+    /**
+     * @param fps : frame rate while sweeping
+     */
+    public void setSweepFps(int fps) {
+        mSweepFps = Math.max(1, fps);
+    }
+
+    public void setOnFrameMissedListener(OnFrameMissedListener listener) {
+        mFrameMissedListener = listener;
+    }
+
+    /**
+     * @return frames posted to the surface so far
+     */
+    public long getFrameCount() {
+        return mFrameCount;
+    }
+
+    public long getMissedFrameCount() {
+        return mMissedFrameCount;
+    }
+
+    private void postToRenderThread(Runnable runnable) {
+        Handler handler = mRenderHandler;
+        if (handler != null) {
+            handler.post(runnable);
+        }
+    }
+
+    /**
+     * Posts {@code whileRendering} to the render thread, or runs {@code otherwise} right
+     * away when there is no render thread to race with
+     */
+    private void postToRenderThread(Runnable whileRendering, Runnable otherwise) {
+        Handler handler = mRenderHandler;
+        if (handler != null) {
+            handler.post(whileRendering);
+        } else {
+            otherwise.run();
+        }
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateVisibleOnScreen();
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateVisibleOnScreen();
+    }
+
+    /**
+     * Lets the render thread schedule frames only while the clock can be seen, and brings
+     * it up to date at once when it can be seen again
+     */
+    private void updateVisibleOnScreen() {
+        boolean visible = getWindowVisibility() == VISIBLE && isShown() && ClockTicker.getInstance().isScreenOn();
+        if (visible == isVisibleOnScreen) {
+            return;
+        }
+        isVisibleOnScreen = visible;
+        if (visible) {
+            postToRenderThread(mRedraw);
+        }
+    }
+
+    @Override
+    public void onSurfaceTextureAvailable(SurfaceTexture surface, final int width, final int height) {
+        HandlerThread renderThread = new HandlerThread("ClockRenderThread", Process.THREAD_PRIORITY_DISPLAY);
+        renderThread.start();
+        Handler handler = new Handler(renderThread.getLooper());
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                mFrameTime = 0;
+            }
+        });
+        synchronized (mSurfaceLock) {
+            isSurfaceAvailable = true;
+            mRenderHandler = handler;
+        }
+        ClockMemory.register(getContext());
+        getContext().getApplicationContext().registerComponentCallbacks(mMemoryCallbacks);
+        ClockTicker.getInstance().registerTimeZoneListener(getContext(), mTimeZoneListener);
+        ClockTicker.getInstance().registerScreenListener(getContext(), mScreenListener);
+        updateVisibleOnScreen();
+        handler.post(mUpdateTimeZone);
+        onSurfaceTextureSizeChanged(surface, width, height);
+    }
+
+    @Override
+    public void onSurfaceTextureSizeChanged(SurfaceTexture surface, final int width, final int height) {
+        postToRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                // the view's own size is only safe to read on the main thread
+                mWidth = width;
+                mHeight = height;
+                mRenderer.setSize(Math.min(width, height));
+                mRedraw.run();
+            }
+        });
+    }
+
+    /**
+     * Stops rendering: no frame is drawn once this returns, the render thread
+     * lets go of the dial and quits.
+     */
+    @Override
+    public boolean onSurfaceTextureDestroyed(SurfaceTexture surface) {
+        getContext().getApplicationContext().unregisterComponentCallbacks(mMemoryCallbacks);
+        ClockTicker.getInstance().unregisterTimeZoneListener(mTimeZoneListener);
+        ClockTicker.getInstance().unregisterScreenListener(mScreenListener);
+        Handler handler;
+        synchronized (mSurfaceLock) {
+            isSurfaceAvailable = false;
+            handler = mRenderHandler;
+            mRenderHandler = null;
+        }
+        if (handler != null) {
+            handler.removeCallbacksAndMessages(null);
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    mRenderer.release();
+                    Looper.myLooper().quit();
+                }
+            });
+        }
+        return true;
+    }
+
+    @Override
+    public void onSurfaceTextureUpdated(SurfaceTexture surface) {
+    }
+
+    /**
+     * Renders the current time, locking only the area that changes since the last frame
+     */
+    private void drawFrame() {
+        long now = mTimeSource.currentTimeMillis();
+        mRenderer.setContinuous(isSweepMode);
+        mDirtyBounds.setEmpty();
+        if (isFullFrame || !mRenderer.getDirtyBounds(now, mDirtyBounds)) {
+            mDirtyRect.set(0, 0, mWidth, mHeight);
+        } else if (mDirtyBounds.isEmpty()) {
+            return;
+        } else {
+            mDirtyBounds.roundOut(mDirtyRect);
+        }
+        synchronized (mSurfaceLock) {
+            if (!isSurfaceAvailable) {
+                return;
+            }
+            // the surface may grow the dirty area, e.g. when it does not keep the previous frame
+            Canvas canvas = lockCanvas(mDirtyRect);
+            if (canvas == null) {
+                return;
+            }
+            try {
+                canvas.clipRect(mDirtyRect);
+                canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+                mRenderer.draw(canvas, now);
+            } finally {
+                unlockCanvasAndPost(canvas);
+            }
+        }
+        mFrameCount++;
+        isFullFrame = false;
+    }
+
+    /**
+     * Next wall-clock second, or the next sweep frame; reports the frames that were
+     * skipped when this one came later than its deadline. Nothing is scheduled while
+     * the clock cannot be seen, it is redrawn when it can be again.
+     */
+    private void scheduleNextFrame() {
+        if (!isVisibleOnScreen) {
+            // a paused clock missed no frames
+            mFrameTime = 0;
+            return;
+        }
+        long now = SystemClock.uptimeMillis();
+        long interval = isSweepMode ? 1000 / mSweepFps : TICK_INTERVAL;
+        if (mFrameTime != 0 && now - mFrameTime >= interval) {
+            int missed = (int) ((now - mFrameTime) / interval);
+            mMissedFrameCount += missed;
+            OnFrameMissedListener listener = mFrameMissedListener;
+            if (listener != null) {
+                listener.onFrameMissed(missed);
+            }
+        }
+        long delay = isSweepMode ? interval : TICK_INTERVAL - mTimeSource.currentTimeMillis() % TICK_INTERVAL;
+        mFrameTime = now + delay;
+        Handler handler = mRenderHandler;
+        if (handler != null) {
+            handler.postAtTime(mFrame, mFrameTime);
+        }
+    }
+}
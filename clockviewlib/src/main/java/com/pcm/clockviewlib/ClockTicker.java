@@ -0,0 +1,278 @@
+package com.pcm.clockviewlib;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+
+/**
+ * Process wide ticker shared by every attached clock.
+ * Runs on the main thread only while it has listeners and the screen is on, and
+ * fires all of them in one batch right after each wall-clock second boundary.
+ * Listeners that only need minutes are fired after minute boundaries, and while
+ * only those are registered the ticker wakes up once per minute.
+ * <p>
+ * It also tells clocks that follow the device time zone when the user changes it, tells clocks
+ * that draw on their own when the screen turns on or off, and
+ * keeps whether battery saver is on so clocks can check it on every tick without asking the system.
+ */
+final class ClockTicker {
+    private static final long TICK_INTERVAL = 1000;
+    private static final long MINUTE = 60 * TICK_INTERVAL;
+    private static ClockTicker sInstance;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final ArrayList<OnTickListener> mListeners = new ArrayList<>();
+    private final ArrayList<OnTickListener> mMinuteListeners = new ArrayList<>();
+    private final ArrayList<Runnable> mTimeZoneListeners = new ArrayList<>();
+    private final ArrayList<Runnable> mScreenListeners = new ArrayList<>();
+    private OnTickListener[] mDispatchBuffer = new OnTickListener[8];
+    private boolean isRunning;
+    private boolean isScreenOn = true;
+    private boolean isPowerSaveMode;
+    private long mLastMinute = -1;
+    private Context mContext;
+    private BroadcastReceiver mReceiver;
+
+    private final Runnable mTickRunnable = new Runnable() {
+        @Override
+        public void run() {
+            dispatchTick(false, false);
+            scheduleNextTick();
+        }
+    };
+
+    interface OnTickListener {
+        /**
+         * @param resumed : true for the first tick after the ticker was paused, e.g. while the screen was off
+         */
+        void onTick(boolean resumed);
+    }
+
+    private ClockTicker() {
+    }
+
+    static ClockTicker getInstance() {
+        if (sInstance == null) {
+            sInstance = new ClockTicker();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Must be called on the main thread. Registering the same listener twice has no effect,
+     * registering it with the other rate moves it.
+     *
+     * @param context     : used to follow the screen turning on and off
+     * @param minutesOnly : true to be ticked once per minute instead of every second
+     */
+    void register(Context context, OnTickListener listener, boolean minutesOnly) {
+        ArrayList<OnTickListener> listeners = minutesOnly ? mMinuteListeners : mListeners;
+        (minutesOnly ? mListeners : mMinuteListeners).remove(listener);
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+        watchBroadcasts(context);
+        updateRunning();
+    }
+
+    /**
+     * Must be called on the main thread. The ticker stops once the last listener is gone.
+     */
+    void unregister(OnTickListener listener) {
+        if (!mListeners.remove(listener) && !mMinuteListeners.remove(listener)) {
+            return;
+        }
+        stopWatchingBroadcasts();
+        updateRunning();
+    }
+
+    /**
+     * Must be called on the main thread. The listener runs on the main thread when the device
+     * time zone changes, before every clock is ticked; it is kept while the clock is not ticking.
+     *
+     * @param context : used to follow the time zone
+     */
+    void registerTimeZoneListener(Context context, Runnable listener) {
+        if (!mTimeZoneListeners.contains(listener)) {
+            mTimeZoneListeners.add(listener);
+        }
+        watchBroadcasts(context);
+    }
+
+    /**
+     * Must be called on the main thread
+     */
+    void unregisterTimeZoneListener(Runnable listener) {
+        if (mTimeZoneListeners.remove(listener)) {
+            stopWatchingBroadcasts();
+        }
+    }
+
+    /**
+     * Must be called on the main thread. The listener runs on the main thread after the screen
+     * turned on or off, see {@link #isScreenOn()}; it is kept while the clock is not ticking.
+     *
+     * @param context : used to follow the screen
+     */
+    void registerScreenListener(Context context, Runnable listener) {
+        if (!mScreenListeners.contains(listener)) {
+            mScreenListeners.add(listener);
+        }
+        watchBroadcasts(context);
+    }
+
+    /**
+     * Must be called on the main thread
+     */
+    void unregisterScreenListener(Runnable listener) {
+        if (mScreenListeners.remove(listener)) {
+            stopWatchingBroadcasts();
+        }
+    }
+
+    int getListenerCount() {
+        return mListeners.size() + mMinuteListeners.size();
+    }
+
+    private void watchBroadcasts(Context context) {
+        if (mReceiver != null) {
+            return;
+        }
+        context = context.getApplicationContext();
+        mContext = context;
+        mReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                if (Intent.ACTION_TIMEZONE_CHANGED.equals(intent.getAction())) {
+                    onTimeZoneChanged();
+                } else if (PowerManager.ACTION_POWER_SAVE_MODE_CHANGED.equals(intent.getAction())) {
+                    isPowerSaveMode = readPowerSaveMode();
+                } else {
+                    setScreenOn(Intent.ACTION_SCREEN_ON.equals(intent.getAction()));
+                }
+            }
+        };
+        IntentFilter filter = new IntentFilter(Intent.ACTION_SCREEN_ON);
+        filter.addAction(Intent.ACTION_SCREEN_OFF);
+        filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            filter.addAction(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+        }
+        context.registerReceiver(mReceiver, filter);
+
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        if (powerManager != null) {
+            isScreenOn = Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT_WATCH
+                    ? powerManager.isInteractive() : powerManager.isScreenOn();
+        }
+        isPowerSaveMode = readPowerSaveMode();
+    }
+
+    private boolean readPowerSaveMode() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP || mContext == null) {
+            return false;
+        }
+        PowerManager powerManager = (PowerManager) mContext.getSystemService(Context.POWER_SERVICE);
+        return powerManager != null && powerManager.isPowerSaveMode();
+    }
+
+    private void stopWatchingBroadcasts() {
+        if (getListenerCount() == 0 && mTimeZoneListeners.isEmpty() && mScreenListeners.isEmpty() && mReceiver != null) {
+            mContext.unregisterReceiver(mReceiver);
+            mReceiver = null;
+            mContext = null;
+        }
+    }
+
+    /**
+     * Tells the time zone listeners, then brings every clock up to date at once
+     */
+    void onTimeZoneChanged() {
+        for (Runnable listener : mTimeZoneListeners.toArray(new Runnable[mTimeZoneListeners.size()])) {
+            listener.run();
+        }
+        if (isRunning) {
+            dispatchTick(true, false);
+        }
+    }
+
+    /**
+     * No ticks while the screen is off; when it comes back on every clock is brought up to date at once
+     */
+    void setScreenOn(boolean screenOn) {
+        if (screenOn == isScreenOn) {
+            return;
+        }
+        isScreenOn = screenOn;
+        for (Runnable listener : mScreenListeners.toArray(new Runnable[mScreenListeners.size()])) {
+            listener.run();
+        }
+        if (screenOn && getListenerCount() > 0) {
+            dispatchTick(true, true);
+        }
+        updateRunning();
+    }
+
+    boolean isScreenOn() {
+        return isScreenOn;
+    }
+
+    /**
+     * Must be called on the main thread. Only followed while someone is registered, a change
+     * reaches the clocks with their next tick.
+     */
+    boolean isPowerSaveMode() {
+        return isPowerSaveMode;
+    }
+
+    private void updateRunning() {
+        boolean running = isScreenOn && getListenerCount() > 0;
+        mHandler.removeCallbacks(mTickRunnable);
+        isRunning = running;
+        scheduleNextTick();
+    }
+
+    private void scheduleNextTick() {
+        if (!isRunning) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long interval = mListeners.isEmpty() ? MINUTE : TICK_INTERVAL;
+        long delay = interval - now % interval;
+        mHandler.postAtTime(mTickRunnable, SystemClock.uptimeMillis() + delay);
+    }
+
+    /**
+     * @param all     : true to tick minute listeners as well, even if the minute did not change
+     * @param resumed : true when ticking resumes after a pause
+     */
+    private void dispatchTick(boolean all, boolean resumed) {
+        long minute = System.currentTimeMillis() / MINUTE;
+        dispatch(mListeners, resumed);
+        if (all || minute != mLastMinute) {
+            mLastMinute = minute;
+            dispatch(mMinuteListeners, resumed);
+        }
+    }
+
+    private void dispatch(ArrayList<OnTickListener> listeners, boolean resumed) {
+        // copy first, listeners may unregister themselves while being ticked
+        int count = listeners.size();
+        if (mDispatchBuffer.length < count) {
+            mDispatchBuffer = new OnTickListener[count * 2];
+        }
+        OnTickListener[] buffer = listeners.toArray(mDispatchBuffer);
+        for (int index = 0; index < count; index++) {
+            buffer[index].onTick(resumed);
+            buffer[index] = null;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.pcm.clockviewlib;
+
+import java.util.TimeZone;
+
+/**
+ * Local time of day split into fields with plain epoch arithmetic.
+ * The time zone offset is cached and only looked up again when the time leaves
+ * the range the cached offset is known to be valid for, i.e. at DST transitions.
+ */
+public final class ClockTime {
+    private static final long SECOND = 1000;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+
+    private TimeZone mTimeZone;
+    private int mOffset;
+    private long mOffsetValidFrom = Long.MAX_VALUE;
+    private long mOffsetValidUntil = Long.MIN_VALUE;
+    private int mOffsetLookups;
+
+    private long mTimeInMillis;
+    private int mHour;
+    private int mMinute;
+    private int mSecond;
+    private int mMillis;
+    private boolean isContinuous;
+
+    public ClockTime(TimeZone timeZone) {
+        mTimeZone = timeZone;
+    }
+
+    public void setTimeZone(TimeZone timeZone) {
+        mTimeZone = timeZone;
+        mOffsetValidFrom = Long.MAX_VALUE;
+        mOffsetValidUntil = Long.MIN_VALUE;
+        set(mTimeInMillis);
+    }
+
+    public TimeZone getTimeZone() {
+        return mTimeZone;
+    }
+
+    /**
+     * @param continuous : true to have the hand angles include the fraction of the current
+     *                   second (sweeping hands), false to step once per second / minute
+     */
+    public void setContinuous(boolean continuous) {
+        isContinuous = continuous;
+    }
+
+    public boolean isContinuous() {
+        return isContinuous;
+    }
+
+    /**
+     * @param timeInMillis : time since the epoch (UTC)
+     */
+    public void set(long timeInMillis) {
+        mTimeInMillis = timeInMillis;
+        if (timeInMillis < mOffsetValidFrom || timeInMillis >= mOffsetValidUntil) {
+            updateOffset(timeInMillis);
+        }
+        long millisOfDay = floorMod(timeInMillis + mOffset, DAY);
+        mHour = (int) (millisOfDay / HOUR);
+        mMinute = (int) (millisOfDay / MINUTE % 60);
+        mSecond = (int) (millisOfDay / SECOND % 60);
+        mMillis = (int) (millisOfDay % SECOND);
+    }
+
+    /**
+     * Caches the offset at {@code timeInMillis} together with the range it holds for.
+     * The range ends at the next transition within a day, found by bisection.
+     */
+    private void updateOffset(long timeInMillis) {
+        mOffsetLookups++;
+        mOffset = mTimeZone.getOffset(timeInMillis);
+        mOffsetValidFrom = timeInMillis;
+        long until = timeInMillis + DAY;
+        if (mTimeZone.getOffset(until) != mOffset) {
+            long low = timeInMillis;
+            while (until - low > 1) {
+                long middle = low + (until - low) / 2;
+                if (mTimeZone.getOffset(middle) == mOffset) {
+                    low = middle;
+                } else {
+                    until = middle;
+                }
+            }
+        }
+        mOffsetValidUntil = until;
+    }
+
+    private static long floorMod(long value, long divisor) {
+        long mod = value % divisor;
+        return mod < 0 ? mod + divisor : mod;
+    }
+
+    public long getTimeInMillis() {
+        return mTimeInMillis;
+    }
+
+    /**
+     * @return hour of day, 0 - 23
+     */
+    public int getHour() {
+        return mHour;
+    }
+
+    public int getMinute() {
+        return mMinute;
+    }
+
+    public int getSecond() {
+        return mSecond;
+    }
+
+    public int getMillis() {
+        return mMillis;
+    }
+
+    /**
+     * @return clockwise angle of the second hand from 12 o'clock, in degrees
+     */
+    public float getSecondAngle() {
+        if (isContinuous) {
+            return (mSecond + mMillis / 1000f) * 6f;
+        }
+        return mSecond * 6f;
+    }
+
+    /**
+     * @return clockwise angle of the minute hand from 12 o'clock, in degrees
+     */
+    public float getMinuteAngle() {
+        if (isContinuous) {
+            return (mMinute + (mSecond + mMillis / 1000f) / 60f) * 6f;
+        }
+        return mMinute * 6f;
+    }
+
+    /**
+     * @return clockwise angle of the hour hand from 12 o'clock, in degrees
+     */
+    public float getHourAngle() {
+        if (isContinuous) {
+            return (mHour % 12) * 30f + (mMinute + mSecond / 60f) * 0.5f;
+        }
+        return (mHour % 12) * 30f + mMinute * 0.5f;
+    }
+
+    int getOffsetLookupCount() {
+        return mOffsetLookups;
+    }
+}
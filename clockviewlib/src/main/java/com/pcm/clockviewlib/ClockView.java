@@ -2,39 +2,65 @@ package com.pcm.clockviewlib;
 
 import android.content.Context;
 import android.content.res.TypedArray;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.Paint;
-import android.graphics.PorterDuff;
-import android.graphics.PorterDuffXfermode;
 import android.graphics.Rect;
 import android.graphics.RectF;
-import android.graphics.Xfermode;
-import android.os.Handler;
+import android.os.Build;
+import android.os.SystemClock;
 import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
+import android.view.Choreographer;
 import android.view.View;
 
-import java.util.Calendar;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * View showing a running clock, drawn by a {@link ClockRenderer}. The view decides
+ * when to redraw: once per second on the shared {@link ClockTicker}, or on every
+ * frame while sweeping, and only the area the hands move through.
+ */
 public class ClockView extends View {
-    private static final int START_ANGLE = -90;
-    private Paint mPaint;
-    private int mSecond;
-    private int mMinute;
-    private int mHour;
-    private int mSecondHandColor = Color.parseColor("#2E7D32");
-    private int mMinuteHandColor = Color.parseColor("#EF6C00");
-    private int mHourHandColor = Color.parseColor("#F44336");
-    private int mClockFaceColor = Color.parseColor("#1565C0");
-    private int mClockFaceBackgroundId = -1;
-    private Bitmap mClockFaceBackgroundBitmap;
-    private boolean isDigitalTimeShow;
-    private int mClockFace = 1;
-    private Xfermode mClockBackGroundMask;
-    private Xfermode mResetMask;
+    public static final int FACE_DEFAULT = 0;
+    public static final int FACE_DIGITAL = 1;
+    public static final int FACE_ROMAN = 2;
+    private static final int DEFAULT_SWEEP_FPS = 60;
+    // a frame is missed when it comes more than one vsync after its deadline
+    private static final long FRAME_SLACK_NANOS = 17000000;
+    // vsync times jitter, a vsync this much before the deadline still takes the frame
+    private static final long FRAME_JITTER_NANOS = 4000000;
+    // how long to stay at 1 Hz after too many missed frames
+    private static final long SWEEP_RETRY_DELAY = 30000;
+    private ClockStyle mStyle;
+    private final ClockRenderer mRenderer;
+    private TimeSource mTimeSource = SystemTimeSource.getInstance();
+    private final FeedTimeSource mClockTime = new FeedTimeSource();
+    private final AtomicBoolean isClockTimeRedrawPending = new AtomicBoolean();
+    private Runnable mClockTimeFrame;
+    private ClockMemory.Callbacks mMemoryCallbacks;
+    private ClockTicker.OnTickListener mTickListener;
+    private Runnable mTimeZoneListener;
+    private boolean isAttached;
+    private boolean isWindowVisible = true;
+    private boolean isAmbient;
+    private final Rect mVisibleRect = new Rect();
+    private boolean isSweepMode;
+    private int mSweepFps = DEFAULT_SWEEP_FPS;
+    private boolean isSweeping;
+    private long mSweepRetryTime;
+    // vsync time the next sweep frame is due, 0 to take the next vsync
+    private long mNextSweepFrameTime;
+    private boolean isSweepFrameLate;
+    // Choreographer.FrameCallback on API 16 and up, a Runnable posted on animation before that
+    private Object mSweepFrame;
+    private final FrameStats mFrameStats = new FrameStats();
+    // also read by threads calling setClockTime
+    private volatile ClockMetrics mMetrics;
+    private boolean isTickPending;
+    private final RectF mDirtyBounds = new RectF();
+    private final Rect mDirtyRect = new Rect();
 
     public ClockView(Context context) {
         this(context, null);
@@ -46,244 +72,489 @@ public class ClockView extends View {
 
     public ClockView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
-        TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.ClockView);
-
-        mSecondHandColor = typedArray.getColor(R.styleable.ClockView_second_hand_color, mSecondHandColor);
-        mMinuteHandColor = typedArray.getColor(R.styleable.ClockView_minute_hand_color, mMinuteHandColor);
-        mHourHandColor = typedArray.getColor(R.styleable.ClockView_hour_hand_color, mHourHandColor);
-        mClockFaceColor = typedArray.getColor(R.styleable.ClockView_clock_face_color, mClockFaceColor);
-        mClockFace = typedArray.getInt(R.styleable.ClockView_clock_face, 1);
-        mClockFaceBackgroundId = typedArray.getResourceId(R.styleable.ClockView_clock_face_background, -1);
-
-        int showDigitalTime = typedArray.getInt(R.styleable.ClockView_show_digital_time, 1);
-        if (showDigitalTime <= 0) {
-            isDigitalTimeShow = false;
-        } else {
-            isDigitalTimeShow = true;
-        }
-        mClockBackGroundMask = new PorterDuffXfermode(PorterDuff.Mode.SRC_IN);
+        TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.ClockView, defStyleAttr, 0);
+        mStyle = ClockStyle.obtain(typedArray);
+        mRenderer = new ClockRenderer(getResources(), mStyle);
+        isSweepMode = typedArray.getBoolean(R.styleable.ClockView_sweep, false);
+        mSweepFps = typedArray.getInt(R.styleable.ClockView_sweep_fps, DEFAULT_SWEEP_FPS);
+        mRenderer.setRenderStrategy(typedArray.getInt(R.styleable.ClockView_render_strategy, ClockRenderer.RENDER_VECTOR));
         typedArray.recycle();
         init();
-        setClockTime(Calendar.getInstance().getTimeInMillis());
     }
 
+    /**
+     * Shows the given time, the clock keeps running from there unless
+     * {@link #setClockTimeInterpolated(boolean)} is off. Can be called from any thread,
+     * as often as updates arrive: a burst of updates is drawn once, with the latest time,
+     * on the next frame.
+     *
+     * @param timeInMillis : time since the epoch (UTC)
+     */
     public void setClockTime(long timeInMillis) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTimeInMillis(timeInMillis);
-        mSecond = calendar.get(Calendar.SECOND) * 6;
-        mMinute = calendar.get(Calendar.MINUTE) * 6;
-        mHour = calendar.get(Calendar.HOUR) * 30 + (mMinute / 24);
+        mClockTime.setTime(timeInMillis);
+        boolean coalesced = !isClockTimeRedrawPending.compareAndSet(false, true);
+        if (!coalesced) {
+            ViewCompat.postOnAnimation(this, mClockTimeFrame);
+        }
+        ClockMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.recordTimeUpdate(coalesced);
+        }
     }
 
-    private void init() {
-        mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        mPaint.setColor(Color.RED);
-        mPaint.setStrokeWidth(2);
-        mPaint.setStyle(Paint.Style.STROKE);
-        mPaint.setStrokeCap(Paint.Cap.ROUND);
-
-        if (mClockFaceBackgroundId != -1) {
-            mClockFaceBackgroundBitmap = BitmapFactory.decodeResource(getResources(), mClockFaceBackgroundId);
+    /**
+     * @param interpolated : true to advance the time set with {@link #setClockTime(long)} on
+     *                     the monotonic clock between updates (default), false to hold it.
+     *                     Can be called from any thread.
+     */
+    public void setClockTimeInterpolated(boolean interpolated) {
+        mClockTime.setInterpolated(interpolated);
+        ViewCompat.postInvalidateOnAnimation(this);
+    }
+
+    long currentTimeMillis() {
+        return mClockTime.hasTime() ? mClockTime.currentTimeMillis() : mTimeSource.currentTimeMillis();
+    }
+
+    /**
+     * @param timeSource : where the clock reads the time from on every frame,
+     *                   {@link SystemTimeSource} by default. Resets {@link #setClockTime(long)}.
+     */
+    public void setTimeSource(TimeSource timeSource) {
+        mTimeSource = timeSource;
+        mClockTime.clear();
+        invalidate();
+    }
+
+    /**
+     * @param timeZone : time zone the clock shows, null to follow the device time zone (default)
+     */
+    public void setTimeZone(TimeZone timeZone) {
+        mRenderer.setTimeZone(timeZone);
+        invalidate();
+    }
+
+    /**
+     * @param style : shared look of the clock, see {@link ClockStyle}
+     */
+    public void setClockStyle(ClockStyle style) {
+        if (style == mStyle) {
+            return;
+        }
+        mStyle = style;
+        mRenderer.setClockStyle(isAmbient ? style.toAmbient() : style);
+        invalidate();
+    }
+
+    public ClockStyle getClockStyle() {
+        return mStyle;
+    }
+
+    /**
+     * Low power mode for always-on and dimmed displays: the clock is drawn in the
+     * {@link ClockStyle#toAmbient() ambient look} without the second hand, and is
+     * updated once per minute, right after the minute boundary.
+     */
+    public void setAmbientMode(boolean ambient) {
+        if (ambient == isAmbient) {
+            return;
+        }
+        isAmbient = ambient;
+        mRenderer.setClockStyle(ambient ? mStyle.toAmbient() : mStyle);
+        mRenderer.setSecondHandShown(!ambient);
+        updateTicking();
+        invalidate();
+    }
+
+    public boolean isAmbientMode() {
+        return isAmbient;
+    }
+
+    public void setSecondHandColor(int color) {
+        setClockStyle(getClockStyle().withSecondHandColor(color));
+    }
+
+    public void setMinuteHandColor(int color) {
+        setClockStyle(getClockStyle().withMinuteHandColor(color));
+    }
+
+    public void setHourHandColor(int color) {
+        setClockStyle(getClockStyle().withHourHandColor(color));
+    }
+
+    public void setClockFaceColor(int color) {
+        setClockStyle(getClockStyle().withFaceColor(color));
+    }
+
+    /**
+     * @param clockFace : one of {@link #FACE_DEFAULT}, {@link #FACE_DIGITAL} or {@link #FACE_ROMAN}
+     */
+    public void setClockFace(int clockFace) {
+        setClockStyle(getClockStyle().withFace(clockFace));
+    }
+
+    /**
+     * @param resId : drawable resource id, or -1 to remove the background
+     */
+    public void setClockFaceBackground(int resId) {
+        setClockStyle(getClockStyle().withBackground(resId));
+    }
+
+    public void setDigitalTimeShow(boolean show) {
+        setClockStyle(getClockStyle().withDigitalTimeShown(show));
+    }
+
+    /**
+     * @param is24Hour : true for "HH:mm:ss" (default), false for "h:mm:ss AM"
+     */
+    public void set24HourFormat(boolean is24Hour) {
+        setClockStyle(getClockStyle().with24HourFormat(is24Hour));
+    }
+
+    /**
+     * @param show : whether the digital time includes seconds
+     */
+    public void setShowSeconds(boolean show) {
+        setClockStyle(getClockStyle().withSecondsShown(show));
+    }
+
+    /**
+     * @param secondHandShape : see {@link HandShape} for the built in shapes
+     */
+    public void setHandShapes(HandShape secondHandShape, HandShape minuteHandShape, HandShape hourHandShape) {
+        setClockStyle(getClockStyle().withHandShapes(secondHandShape, minuteHandShape, hourHandShape));
+    }
+
+    /**
+     * @param sweep : true to move the hands continuously, false to step once per second
+     */
+    public void setSweepMode(boolean sweep) {
+        isSweepMode = sweep;
+        mSweepRetryTime = 0;
+        updateSweeping();
+    }
+
+    public boolean isSweepMode() {
+        return isSweepMode;
+    }
+
+    /**
+     * @param fps : frame cap while sweeping, e.g. 60, 30 or 15
+     */
+    public void setSweepFps(int fps) {
+        mSweepFps = Math.max(1, fps);
+    }
+
+    /**
+     * @param strategy : {@link ClockRenderer#RENDER_VECTOR} (default), {@link ClockRenderer#RENDER_SPRITES}
+     *                 for pre-rendered hands, or {@link ClockRenderer#RENDER_AUTO} to pick the faster
+     */
+    public void setRenderStrategy(int strategy) {
+        mRenderer.setRenderStrategy(strategy);
+        invalidate();
+    }
+
+    public int getRenderStrategy() {
+        return mRenderer.getRenderStrategy();
+    }
+
+    /**
+     * @param count : rotations of the hour hand sprite, see {@link ClockRenderer#setHourSpriteCount(int)}
+     */
+    public void setHourSpriteCount(int count) {
+        mRenderer.setHourSpriteCount(count);
+        invalidate();
+    }
+
+    /**
+     * @param bytes : memory budget of the hand sprites, see {@link ClockRenderer#setSpriteMemoryBudget(long)}
+     */
+    public void setSpriteMemoryBudget(long bytes) {
+        mRenderer.setSpriteMemoryBudget(bytes);
+        invalidate();
+    }
+
+    /**
+     * @return draw times and missed frames, to check that sweeping fits the frame budget
+     */
+    public FrameStats getFrameStats() {
+        return mFrameStats;
+    }
+
+    /**
+     * @param enabled : true to start collecting {@link ClockMetrics}, false to stop and drop them
+     */
+    public void setMetricsEnabled(boolean enabled) {
+        if (enabled == (mMetrics != null)) {
+            return;
         }
+        mMetrics = enabled ? new ClockMetrics() : null;
+        mRenderer.setMetrics(mMetrics);
+        // counts the dial from the next draw on
+        mRenderer.release();
+        invalidate();
+    }
+
+    /**
+     * @return the metrics collected since they were enabled, or null if they are not
+     */
+    @Nullable
+    public ClockMetrics getMetrics() {
+        return mMetrics;
+    }
 
-        final Handler handler = new Handler();
-        handler.post(new Runnable() {
+    @VisibleForTesting
+    ClockRenderer getRenderer() {
+        return mRenderer;
+    }
+
+    private void init() {
+        mTickListener = new ClockTicker.OnTickListener() {
+            @Override
+            public void onTick(boolean resumed) {
+                ClockMetrics metrics = mMetrics;
+                // scrolled out of its parent, it is redrawn with the current time when it comes back
+                if (!getLocalVisibleRect(mVisibleRect)) {
+                    if (metrics != null) {
+                        metrics.resetTicks();
+                    }
+                    return;
+                }
+                if (metrics != null) {
+                    // ambient ticks once per minute, and no ticks came while the ticker was paused
+                    if (isAmbient || resumed) {
+                        metrics.resetTicks();
+                    }
+                    if (!isAmbient) {
+                        metrics.recordTick(System.currentTimeMillis(), isTickPending);
+                    }
+                }
+                isTickPending = true;
+                updateSweeping();
+                invalidateHands();
+            }
+        };
+        mTimeZoneListener = new Runnable() {
+            @Override
+            public void run() {
+                if (mRenderer.updateDefaultTimeZone()) {
+                    invalidate();
+                }
+            }
+        };
+        mMemoryCallbacks = new ClockMemory.Callbacks() {
+            @Override
+            public void onTrimMemory(int level) {
+                trimMemory(level);
+            }
+        };
+        mClockTimeFrame = new Runnable() {
             @Override
             public void run() {
-                // one min have 60 sec so 360/60=6
-                //mSecond = (mSecond + 6) % 360;
-                mSecond += 6;
-                if (mSecond >= 360) {
-                    mMinute += 6;
-                    mHour += 1;
-                    mSecond = 0;
+                isClockTimeRedrawPending.set(false);
+                invalidateHands();
+            }
+        };
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            mSweepFrame = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    onSweepFrame(frameTimeNanos);
                 }
-                if (mMinute >= 360) {
-                    mMinute = 0;
+            };
+        } else {
+            mSweepFrame = new Runnable() {
+                @Override
+                public void run() {
+                    onSweepFrame(System.nanoTime());
                 }
+            };
+        }
+        mRenderer.setOnDialUpdatedListener(new Runnable() {
+            @Override
+            public void run() {
                 invalidate();
-                handler.postDelayed(this, 1000);
             }
         });
     }
 
     @Override
-    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        int width = MeasureSpec.getSize(widthMeasureSpec);
-        int height = MeasureSpec.getSize(heightMeasureSpec);
-        int squareSize = width > height ? height : width;
-        super.onMeasure(MeasureSpec.makeMeasureSpec(squareSize, MeasureSpec.EXACTLY), MeasureSpec.makeMeasureSpec(squareSize, MeasureSpec.EXACTLY));
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        isAttached = true;
+        ClockMemory.register(getContext());
+        getContext().getApplicationContext().registerComponentCallbacks(mMemoryCallbacks);
+        // the time zone may have changed while detached
+        mTimeZoneListener.run();
+        ClockTicker.getInstance().registerTimeZoneListener(getContext(), mTimeZoneListener);
+        updateTicking();
     }
 
-    private Bitmap getCircleBitmap(Bitmap bitmap) {
-        final Bitmap result = Bitmap.createBitmap(bitmap.getWidth(), bitmap.getHeight(), Bitmap.Config.ARGB_8888);
-        final Canvas canvas = new Canvas(result);
-
-        final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        final Rect rect = new Rect(0, 0, bitmap.getWidth(), bitmap.getHeight());
-        final RectF rectF = new RectF(rect);
-        canvas.drawOval(rectF, paint);
-        paint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC_IN));
-        canvas.drawBitmap(bitmap, rect, rect, paint);
-        return result;
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        isWindowVisible = visibility == VISIBLE;
+        updateTicking();
     }
 
     @Override
-    protected void onDraw(Canvas canvas) {
-        super.onDraw(canvas);
-
-        int center = getWidth() / 2;
-        float radius = center / 1.25f;
-        mPaint.setColor(mClockFaceColor);
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateTicking();
+    }
 
-        if (mClockFaceBackgroundBitmap != null) {
-            int left = (getWidth() - mClockFaceBackgroundBitmap.getWidth()) / 2;
-            int top = (getHeight() - mClockFaceBackgroundBitmap.getHeight()) / 2;
-            canvas.drawBitmap(getCircleBitmap(mClockFaceBackgroundBitmap), left, top, mPaint);
+    /**
+     * Subscribes to the shared {@link ClockTicker} only while the clock can actually be seen:
+     * attached, in a visible window, with itself and all its parents visible. The ticker
+     * also pauses while the screen is off. In ambient mode it only ticks every minute.
+     */
+    private void updateTicking() {
+        if (mTickListener == null) {
+            // visibility can change while the view is being constructed
+            return;
         }
-        canvas.drawCircle(center, center, radius, mPaint);
-        canvas.drawCircle(center, center, 6, mPaint);
-
-        drawClockFace(canvas);
-        drawTimeOnCanvas(canvas);
-        drawHoursLine(canvas);
-        drawMinuteLine(canvas);
-        drawSecondLine(canvas);
+        if (isAttached && isWindowVisible && isShown()) {
+            ClockTicker.getInstance().register(getContext(), mTickListener, isAmbient);
+        } else {
+            ClockTicker.getInstance().unregister(mTickListener);
+            if (mMetrics != null) {
+                mMetrics.resetTicks();
+            }
+        }
+        updateSweeping();
     }
 
-    private void drawTimeOnCanvas(Canvas canvas) {
-        int center = getWidth() / 2;
-        String hour = String.valueOf(Calendar.getInstance().get(Calendar.HOUR_OF_DAY));
-        String minute = String.valueOf(Calendar.getInstance().get(Calendar.MINUTE));
-        String sec = String.valueOf(Calendar.getInstance().get(Calendar.SECOND));
-
-        if (Integer.parseInt(hour) < 10) {
-            hour = "0" + hour;
+    /**
+     * Sweeps only while visible and not in ambient mode, and falls back to the 1 Hz tick in battery saver
+     * or for a while after too many frames missed their deadline.
+     */
+    private void updateSweeping() {
+        ClockTicker ticker = ClockTicker.getInstance();
+        boolean sweeping = isSweepMode && !isAmbient && isAttached && isWindowVisible && isShown()
+                && ticker.isScreenOn() && !ticker.isPowerSaveMode() && SystemClock.uptimeMillis() >= mSweepRetryTime;
+        if (sweeping == isSweeping) {
+            return;
         }
-        if (Integer.parseInt(minute) < 10) {
-            minute = "0" + minute;
+        isSweeping = sweeping;
+        mNextSweepFrameTime = 0;
+        isSweepFrameLate = false;
+        mRenderer.setContinuous(sweeping);
+        if (sweeping) {
+            invalidate();
+            scheduleSweepFrame();
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) mSweepFrame);
+        } else {
+            removeCallbacks((Runnable) mSweepFrame);
         }
-        if (Integer.parseInt(sec) < 10) {
-            sec = "0" + sec;
+    }
+
+    private void scheduleSweepFrame() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) mSweepFrame);
+        } else {
+            ViewCompat.postOnAnimation(this, (Runnable) mSweepFrame);
         }
+    }
 
-        if (isDigitalTimeShow) {
-            mPaint.setTextAlign(Paint.Align.CENTER);
-            mPaint.setTextSize(36);
-            canvas.drawText(hour + ":" +
-                    minute + ":" +
-                    sec, center, center + 60, mPaint);
+    /**
+     * Runs on every vsync while sweeping and redraws the hands on the vsyncs that reach the
+     * next frame's deadline, so the fps cap is kept against vsync times whatever the draw takes
+     */
+    private void onSweepFrame(long frameTimeNanos) {
+        if (!isSweeping) {
+            return;
+        }
+        long frameInterval = 1000000000L / mSweepFps;
+        if (frameTimeNanos >= mNextSweepFrameTime - FRAME_JITTER_NANOS) {
+            isSweepFrameLate = mNextSweepFrameTime != 0 && frameTimeNanos - mNextSweepFrameTime > FRAME_SLACK_NANOS;
+            // keep the deadlines on their grid, unless that grid was lost
+            mNextSweepFrameTime = mNextSweepFrameTime == 0 || isSweepFrameLate
+                    ? frameTimeNanos + frameInterval : mNextSweepFrameTime + frameInterval;
+            invalidateHands();
         }
+        scheduleSweepFrame();
     }
 
-    private void drawClockFace(Canvas canvas) {
+    /**
+     * Records the frame, missed if it was a sweep frame that came late
+     */
+    private void onFrameDrawn(long frameStartTime) {
+        long now = System.nanoTime();
+        boolean missed = isSweepFrameLate;
+        isSweepFrameLate = false;
+        mFrameStats.recordFrame(now - frameStartTime, missed);
+        if (mMetrics != null) {
+            mMetrics.recordFrame(now - frameStartTime);
+        }
+        isTickPending = false;
 
-        if (mClockFace == 1) {
-            drawDigitalFace(canvas);
-        } else if (mClockFace == 2) {
-            drawRomanClockFace(canvas);
-        } else {
-            drawNormalFace(canvas);
+        if (mFrameStats.getRecentMissedFrameCount() > FrameStats.WINDOW / 4) {
+            mFrameStats.clearWindow();
+            mSweepRetryTime = SystemClock.uptimeMillis() + SWEEP_RETRY_DELAY;
+            updateSweeping();
         }
     }
 
-    private void drawSecondLine(Canvas canvas) {
-        int center = getWidth() / 2;
-        float angle = (float) (START_ANGLE + mSecond + (Math.PI / 180)); // Need to convert to radians first
-        double radians = Math.toRadians(angle);
-        float radius = center / 1.5f;
-        float startX = (float) (center + radius * Math.cos(radians));
-        float startY = (float) (center + radius * Math.sin(radians));
-        mPaint.setColor(mSecondHandColor);
-        mPaint.setStrokeWidth(2);
-        canvas.drawLine(startX, startY, center, center, mPaint);
-    }
-
-    private void drawMinuteLine(Canvas canvas) {
-        int center = getWidth() / 2;
-        float angle = (float) (START_ANGLE + mMinute + (Math.PI / 180)); // Need to convert to radians first
-        double radians = Math.toRadians(angle);
-        float radius = center / 1.75f;
-        float startX = (float) (center + radius * Math.cos(radians));
-        float startY = (float) (center + radius * Math.sin(radians));
-        mPaint.setColor(mMinuteHandColor);
-        mPaint.setStrokeWidth(4);
-        canvas.drawLine(startX, startY, center, center, mPaint);
-        canvas.drawCircle(startX, startY, 4, mPaint);
-    }
-
-    private void drawHoursLine(Canvas canvas) {
-        int center = getWidth() / 2;
-        float angle = (float) (START_ANGLE + mHour + (Math.PI / 180)); // Need to convert to radians first
-        double radians = Math.toRadians(angle);
-        float radius = center / 2f;
-        float startX = (float) (center + radius * Math.cos(radians));
-        float startY = (float) (center + radius * Math.sin(radians));
-        mPaint.setColor(mHourHandColor);
-        mPaint.setStrokeWidth(6);
-        canvas.drawLine(startX, startY, center, center, mPaint);
-        canvas.drawCircle(startX, startY, 4, mPaint);
-    }
-
-    private void drawDigitalFace(Canvas canvas) {
-        int center = getWidth() / 2;
-
-        for (int index = 1; index <= 12; index++) {
-            float angle = (float) (START_ANGLE + (index * 30) + (Math.PI / 180)); // Need to convert to radians first
-            double radians = Math.toRadians(angle);
-            float radius = center / 1.5f;
-            float startX = (float) (center + radius * Math.cos(radians));
-            float startY = (float) (center + radius * Math.sin(radians));
-            mPaint.setColor(mClockFaceColor);
-            mPaint.setTextSize(36);
-            mPaint.setTextAlign(Paint.Align.CENTER);
-            canvas.drawText(String.valueOf(index), startX, startY, mPaint);
+    /**
+     * Invalidates only the area of the hands and readout that change between the
+     * last drawn frame and now, see {@link ClockRenderer#getDirtyBounds(long, RectF)}.
+     */
+    private void invalidateHands() {
+        mDirtyBounds.setEmpty();
+        if (!mRenderer.getDirtyBounds(currentTimeMillis(), mDirtyBounds)) {
+            invalidate();
+            return;
+        }
+        if (!mDirtyBounds.isEmpty()) {
+            mDirtyBounds.roundOut(mDirtyRect);
+            invalidate(mDirtyRect);
         }
     }
 
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        int height = MeasureSpec.getSize(heightMeasureSpec);
+        int squareSize = width > height ? height : width;
+        super.onMeasure(MeasureSpec.makeMeasureSpec(squareSize, MeasureSpec.EXACTLY), MeasureSpec.makeMeasureSpec(squareSize, MeasureSpec.EXACTLY));
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        mRenderer.setSize(Math.min(w, h));
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        isAttached = false;
+        getContext().getApplicationContext().unregisterComponentCallbacks(mMemoryCallbacks);
+        ClockTicker.getInstance().unregisterTimeZoneListener(mTimeZoneListener);
+        updateTicking();
+        mRenderer.release();
+    }
+
     /**
-     * If user wants roman clock
-     *
-     * @param canvas : view can canvas
+     * Lets go of the dial if the clock is off-screen or the UI is hidden, see {@link ClockMemory}.
+     * The next draw picks it up again, so the clock must be redrawn before it is shown.
      */
-    private void drawRomanClockFace(Canvas canvas) {
-        int center = getWidth() / 2;
-        String[] strings = new String[]{"XII", "I", "II", "III", "IV", "V", "VI", "VII", "VIII", "IX", "X", "XI"};
-        for (int index = 0; index < 12; index++) {
-            float angle = (float) (START_ANGLE + (index * 30) + (Math.PI / 180)); // Need to convert to radians first
-            double radians = Math.toRadians(angle);
-            float radius = center / 1.5f;
-            float startX = (float) (center + radius * Math.cos(radians));
-            float startY = (float) (center + radius * Math.sin(radians));
-            mPaint.setColor(mClockFaceColor);
-            mPaint.setTextSize(36);
-            mPaint.setTextAlign(Paint.Align.CENTER);
-            canvas.drawText(strings[index], startX, startY, mPaint);
+    void trimMemory(int level) {
+        boolean onScreen = isAttached && isWindowVisible && isShown() && getLocalVisibleRect(mVisibleRect);
+        if (ClockMemory.shouldRelease(level, onScreen)) {
+            mRenderer.release();
+            invalidate();
         }
     }
 
-    private void drawNormalFace(Canvas canvas) {
-        int center = getWidth() / 2;
-
-        for (int index = 1; index <= 60; index++) {
-            float angle = (float) ((index * 6) + (Math.PI / 180)); // Need to convert to radians first
-            double radians = Math.toRadians(angle);
-            float radius = center / 1.4f;
-            float startX = (float) (center + radius * Math.cos(radians));
-            float startY = (float) (center + radius * Math.sin(radians));
-            float startX1 = (float) (center + center / 1.35f * Math.cos(radians));
-            float startY1 = (float) (center + center / 1.35f * Math.sin(radians));
-            float startX2 = (float) (center + center / 1.3f * Math.cos(radians));
-            float startY2 = (float) (center + center / 1.3f * Math.sin(radians));
-            mPaint.setColor(mClockFaceColor);
-            mPaint.setStrokeWidth(2);
-            if (index % 5 == 0) {
-                canvas.drawCircle(startX, startY, 4, mPaint);
-                canvas.drawCircle(startX2, startY2, 4, mPaint);
-                canvas.drawCircle(startX1, startY1, 4, mPaint);
-            } else {
-                canvas.drawCircle(startX1, startY1, 2, mPaint);
-            }
-        }
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        long frameStartTime = System.nanoTime();
+        // updates from here on need another frame
+        isClockTimeRedrawPending.set(false);
+        mRenderer.draw(canvas, currentTimeMillis());
+        onFrameDrawn(frameStartTime);
     }
 }
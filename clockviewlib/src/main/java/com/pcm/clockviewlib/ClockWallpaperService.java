@@ -0,0 +1,200 @@
+package com.pcm.clockviewlib;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.Handler;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.service.wallpaper.WallpaperService;
+import android.support.annotation.VisibleForTesting;
+import android.view.SurfaceHolder;
+
+/**
+ * Live wallpaper showing a full-screen clock, drawn straight to the wallpaper surface
+ * with the same dial and hands as {@link ClockView}, without a window or view hierarchy.
+ * Declare it in the app manifest to offer it:
+ * <pre>
+ * &lt;service
+ *     android:name="com.pcm.clockviewlib.ClockWallpaperService"
+ *     android:permission="android.permission.BIND_WALLPAPER"&gt;
+ *     &lt;intent-filter&gt;
+ *         &lt;action android:name="android.service.wallpaper.WallpaperService" /&gt;
+ *     &lt;/intent-filter&gt;
+ *     &lt;meta-data
+ *         android:name="android.service.wallpaper"
+ *         android:resource="@xml/clock_wallpaper" /&gt;
+ * &lt;/service&gt;
+ * </pre>
+ * Subclass it and override {@link #onCreateClockStyle()} for another look.
+ */
+public class ClockWallpaperService extends WallpaperService {
+
+    @Override
+    public Engine onCreateEngine() {
+        return new ClockEngine();
+    }
+
+    /**
+     * @return look of the clock, called once per engine
+     */
+    protected ClockStyle onCreateClockStyle() {
+        return ClockStyle.getDefault();
+    }
+
+    /**
+     * Draws a frame right after every wall-clock second while the wallpaper is visible,
+     * after every minute in battery saver, and nothing while it is hidden. All callbacks
+     * and frames run on the main thread.
+     */
+    public class ClockEngine extends Engine {
+        private final Handler mHandler = new Handler();
+        private WallpaperClock mClock;
+        private BroadcastReceiver mPowerSaveReceiver;
+        private final Runnable mTimeZoneListener = new Runnable() {
+            @Override
+            public void run() {
+                mClock.updateDefaultTimeZone();
+                redraw();
+            }
+        };
+        private final ClockMemory.Callbacks mMemoryCallbacks = new ClockMemory.Callbacks() {
+            @Override
+            public void onTrimMemory(int level) {
+                if (mClock != null && ClockMemory.shouldRelease(level, isVisible())) {
+                    mClock.release();
+                }
+            }
+        };
+        private final Runnable mFrame = new Runnable() {
+            @Override
+            public void run() {
+                long delay = mClock.drawFrame();
+                if (delay >= 0) {
+                    mHandler.postAtTime(this, SystemClock.uptimeMillis() + delay);
+                }
+            }
+        };
+
+        @Override
+        public void onCreate(SurfaceHolder surfaceHolder) {
+            super.onCreate(surfaceHolder);
+            mClock = new WallpaperClock(getResources(), surfaceHolder, onCreateClockStyle(), new Runnable() {
+                @Override
+                public void run() {
+                    redraw();
+                }
+            });
+            setOffsetNotificationsEnabled(true);
+            Context context = getApplicationContext();
+            ClockMemory.register(context);
+            context.registerComponentCallbacks(mMemoryCallbacks);
+            ClockTicker.getInstance().registerTimeZoneListener(context, mTimeZoneListener);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                mPowerSaveReceiver = new BroadcastReceiver() {
+                    @Override
+                    public void onReceive(Context context, Intent intent) {
+                        onPowerSaveModeChanged(isPowerSaveMode());
+                    }
+                };
+                context.registerReceiver(mPowerSaveReceiver, new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+            }
+            onPowerSaveModeChanged(isPowerSaveMode());
+        }
+
+        @Override
+        public void onDestroy() {
+            super.onDestroy();
+            mHandler.removeCallbacks(mFrame);
+            Context context = getApplicationContext();
+            context.unregisterComponentCallbacks(mMemoryCallbacks);
+            ClockTicker.getInstance().unregisterTimeZoneListener(mTimeZoneListener);
+            if (mPowerSaveReceiver != null) {
+                context.unregisterReceiver(mPowerSaveReceiver);
+                mPowerSaveReceiver = null;
+            }
+            mClock.release();
+        }
+
+        @Override
+        public void onVisibilityChanged(boolean visible) {
+            mClock.setVisible(visible);
+            if (visible) {
+                redraw();
+            } else {
+                mHandler.removeCallbacks(mFrame);
+            }
+        }
+
+        @Override
+        public void onSurfaceCreated(SurfaceHolder holder) {
+            super.onSurfaceCreated(holder);
+            mClock.setSurfaceAvailable(true);
+        }
+
+        @Override
+        public void onSurfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+            super.onSurfaceChanged(holder, format, width, height);
+            mClock.setSurfaceAvailable(true);
+            mClock.setSurfaceSize(width, height);
+            redraw();
+        }
+
+        @Override
+        public void onSurfaceRedrawNeeded(SurfaceHolder holder) {
+            super.onSurfaceRedrawNeeded(holder);
+            mClock.invalidate();
+            redraw();
+        }
+
+        @Override
+        public void onSurfaceDestroyed(SurfaceHolder holder) {
+            super.onSurfaceDestroyed(holder);
+            // still visible, drawing goes on once the next surface is created
+            mClock.setSurfaceAvailable(false);
+            mHandler.removeCallbacks(mFrame);
+            mClock.release();
+        }
+
+        @Override
+        public void onOffsetsChanged(float xOffset, float yOffset, float xOffsetStep, float yOffsetStep,
+                                     int xPixelOffset, int yPixelOffset) {
+            mClock.setOffset(xOffset);
+            redraw();
+        }
+
+        /**
+         * Draws now instead of at the next scheduled frame, and schedules from there
+         */
+        private void redraw() {
+            mHandler.removeCallbacks(mFrame);
+            mFrame.run();
+        }
+
+        private boolean isPowerSaveMode() {
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+                return false;
+            }
+            PowerManager powerManager = (PowerManager) getApplicationContext().getSystemService(Context.POWER_SERVICE);
+            return powerManager != null && powerManager.isPowerSaveMode();
+        }
+
+        /**
+         * @param powerSave : whether battery saver is on, the clock then draws once per minute
+         */
+        @VisibleForTesting
+        void onPowerSaveModeChanged(boolean powerSave) {
+            if (powerSave != mClock.isLowPowerMode()) {
+                mClock.setLowPowerMode(powerSave);
+                redraw();
+            }
+        }
+
+        @VisibleForTesting
+        WallpaperClock getClock() {
+            return mClock;
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package com.pcm.clockviewlib;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.VisibleForTesting;
+import android.util.SparseArray;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rendered dials of one {@link ClockStyle}, one bitmap per size, shared by every
+ * clock of that style and size. A dial is kept while at least one clock holds it;
+ * clocks let go of their dial under memory pressure, see {@link ClockMemory}.
+ * <p>
+ * Until its background is decoded by {@link BackgroundLoader} a dial is drawn plain.
+ * Once the background is ready the dial is rendered again into a new bitmap that
+ * replaces the plain one, which is never drawn over: renderers on other threads may
+ * be blitting it at that moment.
+ */
+final class DialCache {
+    @VisibleForTesting
+    static final AtomicInteger sBitmapAllocationCount = new AtomicInteger();
+
+    private final ClockStyle mStyle;
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+    private static Executor sAtlasExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "ClockHandAtlas");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final SparseArray<Dial> mDials = new SparseArray<>();
+
+    /**
+     * A rendered dial, read its bitmap on every frame, it is replaced once the background is in
+     */
+    static final class Dial {
+        private volatile Bitmap bitmap;
+        final ClockGeometry geometry = new ClockGeometry();
+        FaceLabels labels;
+        // hand sprites in use, one per rotation count and budget asked for
+        final ArrayList<Atlas> atlases = new ArrayList<>();
+        int references;
+        boolean isComplete;
+        final ArrayList<Runnable> waiters = new ArrayList<>();
+
+        Dial(Bitmap bitmap) {
+            this.bitmap = bitmap;
+        }
+
+        Bitmap getBitmap() {
+            return bitmap;
+        }
+    }
+
+    /**
+     * Hand sprites of a dial, see {@link HandAtlas}, built off the main thread and shared by
+     * every clock that asks for the same rotations and budget. Pair
+     * {@link #acquireAtlas(int, int, long)} with {@link #releaseAtlas(int, Atlas)}.
+     */
+    static final class Atlas {
+        final int hourRotations;
+        final long budget;
+        int references;
+        private volatile HandAtlas atlas;
+        private volatile boolean isBuilt;
+
+        Atlas(int hourRotations, long budget) {
+            this.hourRotations = hourRotations;
+            this.budget = budget;
+        }
+
+        /**
+         * @return the sprites, null while they are being built or if they do not fit the budget
+         */
+        HandAtlas get() {
+            return atlas;
+        }
+
+        /**
+         * @return true once built, {@link #get()} then stays null only if they did not fit the budget
+         */
+        boolean isBuilt() {
+            return isBuilt;
+        }
+    }
+
+    DialCache(ClockStyle style) {
+        mStyle = style;
+    }
+
+    @VisibleForTesting
+    static void setAtlasExecutor(Executor executor) {
+        sAtlasExecutor = executor;
+    }
+
+    /**
+     * @param onUpdated : run on the main thread if the dial is replaced by one with its background
+     * @return dial of {@code size} pixels, rendered on first use; pair with {@link #release(int, Runnable)}
+     */
+    Dial acquire(Resources resources, final int size, Runnable onUpdated) {
+        Dial dial;
+        boolean isNew;
+        boolean isComplete;
+        synchronized (this) {
+            dial = mDials.get(size);
+            isNew = dial == null;
+            if (isNew) {
+                dial = new Dial(createBitmap(size));
+                ClockMetrics.sDialBytes.addAndGet(dial.bitmap.getByteCount());
+                mDials.put(size, dial);
+                dial.geometry.setSize(size);
+                dial.labels = FaceLabels.create(mStyle);
+                if (dial.labels != null) {
+                    dial.labels.layout(dial.geometry);
+                }
+                int resId = mStyle.getBackgroundId();
+                Bitmap background = resId != -1 ? BackgroundLoader.getInstance().get(resId, size) : null;
+                render(dial, dial.bitmap, background);
+                dial.isComplete = resId == -1 || background != null;
+            }
+            dial.references++;
+            if (!dial.isComplete && onUpdated != null) {
+                dial.waiters.add(onUpdated);
+            }
+            isComplete = dial.isComplete;
+        }
+        if (isComplete) {
+            return dial;
+        }
+        int resId = mStyle.getBackgroundId();
+        Bitmap background = BackgroundLoader.getInstance().get(resId, size);
+        if (background != null) {
+            // decoded meanwhile, or by a renderer off the main thread that wants it in its first frame
+            complete(size, dial, background);
+        } else if (isNew) {
+            BackgroundLoader.getInstance().load(resources, resId, size, new BackgroundLoader.OnLoadedListener() {
+                @Override
+                public void onLoaded(Bitmap background) {
+                    onBackgroundLoaded(size, background);
+                }
+            });
+        }
+        return dial;
+    }
+
+    private Bitmap createBitmap(int size) {
+        Bitmap bitmap = Bitmap.createBitmap(size, size, mStyle.getDialBitmapConfig());
+        sBitmapAllocationCount.incrementAndGet();
+        if (mStyle.isDialOpaque()) {
+            bitmap.eraseColor(mStyle.getDialColor());
+        }
+        return bitmap;
+    }
+
+    /**
+     * @return whether a dial of {@code size} pixels is already rendered
+     */
+    synchronized boolean contains(int size) {
+        return mDials.get(size) != null;
+    }
+
+    synchronized void release(int size, Runnable onUpdated) {
+        Dial dial = mDials.get(size);
+        if (dial == null) {
+            return;
+        }
+        dial.waiters.remove(onUpdated);
+        if (--dial.references <= 0) {
+            mDials.remove(size);
+            ClockMetrics.sDialBytes.addAndGet(-dial.bitmap.getByteCount());
+            dial.bitmap.recycle();
+            // clocks let go of their sprites before the dial, this only catches strays
+            for (int index = 0; index < dial.atlases.size(); index++) {
+                recycle(dial.atlases.get(index));
+            }
+            dial.atlases.clear();
+        }
+    }
+
+    /**
+     * Hand sprites for the dial of {@code size}, which the caller must hold. They are built
+     * on the atlas executor on first use, so a frame never waits for them.
+     *
+     * @return the shared sprites for these rotations and budget, or null if the dial is not acquired
+     */
+    synchronized Atlas acquireAtlas(int size, int hourRotations, long budget) {
+        final Dial dial = mDials.get(size);
+        if (dial == null) {
+            return null;
+        }
+        for (int index = 0; index < dial.atlases.size(); index++) {
+            Atlas atlas = dial.atlases.get(index);
+            if (atlas.hourRotations == hourRotations && atlas.budget == budget) {
+                atlas.references++;
+                return atlas;
+            }
+        }
+        final Atlas atlas = new Atlas(hourRotations, budget);
+        atlas.references++;
+        dial.atlases.add(atlas);
+        sAtlasExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                onAtlasBuilt(atlas, HandAtlas.build(mStyle, dial.geometry, atlas.hourRotations, atlas.budget));
+            }
+        });
+        return atlas;
+    }
+
+    private synchronized void onAtlasBuilt(Atlas atlas, HandAtlas handAtlas) {
+        if (atlas.references <= 0) {
+            // let go of while it was built
+            if (handAtlas != null) {
+                handAtlas.recycle();
+            }
+            return;
+        }
+        if (handAtlas != null) {
+            ClockMetrics.sDialBytes.addAndGet(handAtlas.getByteCount());
+        }
+        atlas.atlas = handAtlas;
+        atlas.isBuilt = true;
+    }
+
+    /**
+     * Recycles the sprites once the last clock using them lets go
+     */
+    synchronized void releaseAtlas(int size, Atlas atlas) {
+        if (--atlas.references > 0) {
+            return;
+        }
+        Dial dial = mDials.get(size);
+        if (dial != null) {
+            dial.atlases.remove(atlas);
+        }
+        recycle(atlas);
+    }
+
+    private static void recycle(Atlas atlas) {
+        atlas.references = 0;
+        HandAtlas handAtlas = atlas.atlas;
+        if (handAtlas != null) {
+            atlas.atlas = null;
+            ClockMetrics.sDialBytes.addAndGet(-handAtlas.getByteCount());
+            handAtlas.recycle();
+        }
+    }
+
+    private void onBackgroundLoaded(int size, Bitmap background) {
+        Dial dial;
+        synchronized (this) {
+            dial = mDials.get(size);
+        }
+        if (dial != null) {
+            complete(size, dial, background);
+        }
+    }
+
+    /**
+     * Renders the dial with its background into a new bitmap outside the lock, swaps it in
+     * under the lock, and tells the waiting clocks on the main thread once the lock is released
+     *
+     * @param background : null if it could not be decoded, the plain dial is then kept
+     */
+    private void complete(int size, Dial dial, Bitmap background) {
+        Bitmap bitmap = null;
+        if (background != null) {
+            bitmap = createBitmap(size);
+            render(dial, bitmap, background);
+        }
+        final ArrayList<Runnable> waiters;
+        synchronized (this) {
+            if (dial.isComplete || mDials.get(size) != dial) {
+                // completed by another thread, or released meanwhile; nobody else has seen this bitmap
+                if (bitmap != null) {
+                    bitmap.recycle();
+                }
+                return;
+            }
+            if (bitmap != null) {
+                ClockMetrics.sDialBytes.addAndGet(bitmap.getByteCount() - dial.bitmap.getByteCount());
+                // the plain bitmap is left to the garbage collector, it may still be being drawn
+                dial.bitmap = bitmap;
+            }
+            dial.isComplete = true;
+            waiters = new ArrayList<>(dial.waiters);
+            dial.waiters.clear();
+        }
+        Runnable notify = new Runnable() {
+            @Override
+            public void run() {
+                for (int index = 0; index < waiters.size(); index++) {
+                    waiters.get(index).run();
+                }
+            }
+        };
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            notify.run();
+        } else {
+            sMainHandler.post(notify);
+        }
+    }
+
+    private void render(Dial dial, Bitmap bitmap, Bitmap background) {
+        Canvas canvas = new Canvas(bitmap);
+        if (background != null) {
+            drawBackground(canvas, dial.geometry, background);
+        }
+        drawDial(canvas, dial.geometry, mStyle, dial.labels);
+    }
+
+    /**
+     * Draws the background center cropped into the dial circle through a shader,
+     * no intermediate masked bitmap is needed
+     */
+    private static void drawBackground(Canvas canvas, ClockGeometry geometry, Bitmap background) {
+        int size = geometry.getSize();
+        float center = geometry.getCenter();
+        int bitmapWidth = background.getWidth();
+        int bitmapHeight = background.getHeight();
+        float scale = (float) size / Math.min(bitmapWidth, bitmapHeight);
+        Matrix matrix = new Matrix();
+        matrix.setScale(scale, scale);
+        matrix.postTranslate((size - bitmapWidth * scale) / 2f, (size - bitmapHeight * scale) / 2f);
+        BitmapShader shader = new BitmapShader(background, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+        shader.setLocalMatrix(matrix);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+        paint.setShader(shader);
+        canvas.drawCircle(center, center, center, paint);
+    }
+
+    /**
+     * Draws everything that does not move except the background: outline, center and face marks
+     *
+     * @param labels : hour labels laid out for this geometry, null for the plain face
+     */
+    static void drawDial(Canvas canvas, ClockGeometry geometry, ClockStyle style, FaceLabels labels) {
+        float center = geometry.getCenter();
+        Paint paint = style.getFacePaint();
+        canvas.drawCircle(center, center, geometry.getFaceRadius(), paint);
+        canvas.drawCircle(center, center, 6, paint);
+
+        if (labels != null) {
+            labels.draw(canvas);
+        } else {
+            drawNormalFace(canvas, geometry, style);
+        }
+    }
+
+    private static void drawNormalFace(Canvas canvas, ClockGeometry geometry, ClockStyle style) {
+        float[] ticks = geometry.getTicks();
+        float[] innerTicks = geometry.getMajorInnerTicks();
+        float[] outerTicks = geometry.getMajorOuterTicks();
+        Paint paint = style.getFacePaint();
+        for (int index = 0; index < 60; index++) {
+            if (index % 5 == 0) {
+                int major = index / 5 * 2;
+                canvas.drawCircle(innerTicks[major], innerTicks[major + 1], 4, paint);
+                canvas.drawCircle(outerTicks[major], outerTicks[major + 1], 4, paint);
+                canvas.drawCircle(ticks[index * 2], ticks[index * 2 + 1], 4, paint);
+            } else {
+                canvas.drawCircle(ticks[index * 2], ticks[index * 2 + 1], 2, paint);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.pcm.clockviewlib;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+/**
+ * The twelve hour labels of a numeral or Roman face, laid out once for a size.
+ * <p>
+ * All labels share one {@code char[]}, each with its own measured origin so its ink
+ * is centered on the label anchor both horizontally and vertically. Drawing is a
+ * single pass over that buffer with one paint, no allocation and no paint changes.
+ */
+final class FaceLabels {
+    private static final String[] NUMERALS = {"12", "1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11"};
+    private static final String[] ROMAN_NUMERALS = {"XII", "I", "II", "III", "IV", "V", "VI", "VII", "VIII", "IX", "X", "XI"};
+    // the face was designed with 36px labels on a 400px clock
+    private static final float TEXT_SIZE_RATIO = ClockStyle.TEXT_SIZE / 400f;
+
+    private final Paint mPaint;
+    private final char[] mChars;
+    private final int[] mStarts = new int[12];
+    private final int[] mLengths = new int[12];
+    private final float[] mOrigins = new float[12 * 2];
+
+    /**
+     * @return labels for the face of {@code style}, or null if the face has none
+     */
+    static FaceLabels create(ClockStyle style) {
+        if (style.getFace() == ClockView.FACE_DIGITAL) {
+            return new FaceLabels(NUMERALS, style.getLabelPaint());
+        } else if (style.getFace() == ClockView.FACE_ROMAN) {
+            return new FaceLabels(ROMAN_NUMERALS, style.getLabelPaint());
+        }
+        return null;
+    }
+
+    private FaceLabels(String[] labels, Paint paint) {
+        mPaint = new Paint(paint);
+        mPaint.setTextAlign(Paint.Align.LEFT);
+        int length = 0;
+        for (int index = 0; index < labels.length; index++) {
+            mStarts[index] = length;
+            mLengths[index] = labels[index].length();
+            length += mLengths[index];
+        }
+        mChars = new char[length];
+        for (int index = 0; index < labels.length; index++) {
+            labels[index].getChars(0, mLengths[index], mChars, mStarts[index]);
+        }
+    }
+
+    /**
+     * Scales the text with the diameter and measures every label around its anchor
+     */
+    void layout(ClockGeometry geometry) {
+        mPaint.setTextSize(geometry.getSize() * TEXT_SIZE_RATIO);
+        float[] anchors = geometry.getLabelAnchors();
+        Rect bounds = new Rect();
+        for (int index = 0; index < 12; index++) {
+            mPaint.getTextBounds(mChars, mStarts[index], mLengths[index], bounds);
+            mOrigins[index * 2] = anchors[index * 2] - bounds.exactCenterX();
+            mOrigins[index * 2 + 1] = anchors[index * 2 + 1] - bounds.exactCenterY();
+        }
+    }
+
+    float getTextSize() {
+        return mPaint.getTextSize();
+    }
+
+    /**
+     * @return x,y of the text origin of label {@code index} (0 is 12 o'clock)
+     */
+    float[] getOrigins() {
+        return mOrigins;
+    }
+
+    void draw(Canvas canvas) {
+        for (int index = 0; index < 12; index++) {
+            canvas.drawText(mChars, mStarts[index], mLengths[index], mOrigins[index * 2], mOrigins[index * 2 + 1], mPaint);
+        }
+    }
+}
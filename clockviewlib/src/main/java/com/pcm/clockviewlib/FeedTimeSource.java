@@ -0,0 +1,69 @@
+package com.pcm.clockviewlib;
+
+import android.os.SystemClock;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link TimeSource} fed from outside, e.g. server or remote-site time arriving on a
+ * socket thread. {@link #setTime(long)} can be called from any thread as often as
+ * updates come, it allocates one small object per update and the latest update wins.
+ * <p>
+ * By default the time keeps running between updates on {@link SystemClock#elapsedRealtime()},
+ * so it neither freezes nor jumps with the device clock. Without interpolation it shows
+ * exactly the last update.
+ */
+public final class FeedTimeSource implements TimeSource {
+    // published whole, a reader never sees the time of one update with the offset of another
+    private final AtomicReference<Update> mUpdate = new AtomicReference<>();
+    private volatile boolean isInterpolated = true;
+
+    private static final class Update {
+        final long time;
+        final long elapsedOffset;
+
+        Update(long time, long elapsedOffset) {
+            this.time = time;
+            this.elapsedOffset = elapsedOffset;
+        }
+    }
+
+    /**
+     * @param timeInMillis : time since the epoch (UTC) at the moment of the call
+     */
+    public void setTime(long timeInMillis) {
+        mUpdate.set(new Update(timeInMillis, timeInMillis - SystemClock.elapsedRealtime()));
+    }
+
+    /**
+     * Forgets the last update, {@link #currentTimeMillis()} reads the device clock again
+     */
+    public void clear() {
+        mUpdate.set(null);
+    }
+
+    public boolean hasTime() {
+        return mUpdate.get() != null;
+    }
+
+    /**
+     * @param interpolated : true to advance the time between updates on the monotonic clock (default),
+     *                     false to hold the last update
+     */
+    public void setInterpolated(boolean interpolated) {
+        isInterpolated = interpolated;
+    }
+
+    public boolean isInterpolated() {
+        return isInterpolated;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        Update update = mUpdate.get();
+        if (update == null) {
+            return System.currentTimeMillis();
+        }
+        return isInterpolated ? update.elapsedOffset + SystemClock.elapsedRealtime() : update.time;
+    }
+}
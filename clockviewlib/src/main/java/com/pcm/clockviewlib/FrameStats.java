@@ -0,0 +1,90 @@
+package com.pcm.clockviewlib;
+
+/**
+ * Draw time and missed frame counters of a clock, over the whole run and over
+ * a window of the most recent frames. Updated and read on the main thread,
+ * recording allocates nothing.
+ */
+public final class FrameStats {
+    static final int WINDOW = 64;
+
+    private final long[] mDrawTimes = new long[WINDOW];
+    private final boolean[] mMissed = new boolean[WINDOW];
+    private int mIndex;
+    private int mWindowCount;
+    private int mWindowMissed;
+    private long mFrameCount;
+    private long mMissedFrameCount;
+
+    void recordFrame(long drawTimeNanos, boolean missed) {
+        if (mWindowCount == WINDOW) {
+            if (mMissed[mIndex]) {
+                mWindowMissed--;
+            }
+        } else {
+            mWindowCount++;
+        }
+        mDrawTimes[mIndex] = drawTimeNanos;
+        mMissed[mIndex] = missed;
+        mIndex = (mIndex + 1) % WINDOW;
+
+        mFrameCount++;
+        if (missed) {
+            mWindowMissed++;
+            mMissedFrameCount++;
+        }
+    }
+
+    /**
+     * Forgets the recent window, totals are kept
+     */
+    void clearWindow() {
+        mIndex = 0;
+        mWindowCount = 0;
+        mWindowMissed = 0;
+    }
+
+    /**
+     * @return average onDraw time of the recent frames in nanoseconds
+     */
+    public long getAverageDrawTimeNanos() {
+        if (mWindowCount == 0) {
+            return 0;
+        }
+        long total = 0;
+        for (int index = 0; index < mWindowCount; index++) {
+            total += mDrawTimes[index];
+        }
+        return total / mWindowCount;
+    }
+
+    /**
+     * @return slowest onDraw time of the recent frames in nanoseconds
+     */
+    public long getMaxDrawTimeNanos() {
+        long max = 0;
+        for (int index = 0; index < mWindowCount; index++) {
+            max = Math.max(max, mDrawTimes[index]);
+        }
+        return max;
+    }
+
+    /**
+     * @return number of the recent frames that came later than their deadline
+     */
+    public int getRecentMissedFrameCount() {
+        return mWindowMissed;
+    }
+
+    public int getRecentFrameCount() {
+        return mWindowCount;
+    }
+
+    public long getFrameCount() {
+        return mFrameCount;
+    }
+
+    public long getMissedFrameCount() {
+        return mMissedFrameCount;
+    }
+}
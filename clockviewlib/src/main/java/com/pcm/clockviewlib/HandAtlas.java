@@ -0,0 +1,267 @@
+package com.pcm.clockviewlib;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * The three hands of one {@link ClockStyle} and size pre-rendered at a fixed number of
+ * rotations, so a frame draws each hand as a single bitmap blit instead of rasterizing
+ * an anti-aliased path. Every sprite is cut to the exact pixels its hand covers at its
+ * angle and packed row by row into a few large pages.
+ * <p>
+ * Hands of the built in shapes are rendered as alpha masks and tinted with the hand
+ * paint when drawn, one byte per pixel; custom shapes keep their colors in ARGB.
+ * Built once and then only read, so it is shared like the dial, see {@link DialCache}.
+ */
+final class HandAtlas {
+    static final int SECOND = 0;
+    static final int MINUTE = 1;
+    static final int HOUR = 2;
+    static final int SECOND_ROTATIONS = 60;
+    static final int MINUTE_ROTATIONS = 60;
+    // fewest hour rotations tried before giving up on the budget
+    static final int MIN_HOUR_ROTATIONS = 60;
+    // extra pixel around every sprite for anti-aliasing, as for the dirty bounds
+    private static final int AA_PADDING = 1;
+    private static final int MIN_PAGE_SIZE = 1024;
+
+    private final Sprites[] mHands = new Sprites[3];
+    private final Bitmap.Config mConfig;
+    private final int mPageSize;
+    private Bitmap[] mPages;
+    private int mPageCount;
+    private int mLastPageHeight;
+    private long mByteCount;
+
+    /**
+     * Where the rotations of one hand are in the pages, all in int arrays by rotation
+     */
+    private static final class Sprites {
+        final int count;
+        final int[] page;
+        final int[] x;
+        final int[] y;
+        // bounds on the clock
+        final int[] left;
+        final int[] top;
+        final int[] right;
+        final int[] bottom;
+
+        Sprites(int count) {
+            this.count = count;
+            page = new int[count];
+            x = new int[count];
+            y = new int[count];
+            left = new int[count];
+            top = new int[count];
+            right = new int[count];
+            bottom = new int[count];
+        }
+    }
+
+    /**
+     * Where the next sprite goes in the pages, packed into shelves: left to right until a page
+     * row is full, then a new row below as high as the tallest sprite of the last one, and the
+     * top left of a new page once a row no longer fits
+     */
+    static final class Shelves {
+        private final int mPageSize;
+        // of the sprite just fitted
+        int page;
+        int x;
+        int y;
+        private int mRowHeight;
+
+        Shelves(int pageSize) {
+            mPageSize = pageSize;
+        }
+
+        /**
+         * Moves to where a sprite of this size goes, then {@link #page}, {@link #x} and {@link #y}
+         * tell where it is; the next call moves past it
+         */
+        void fit(int width, int height) {
+            if (x + width > mPageSize) {
+                x = 0;
+                y += mRowHeight;
+                mRowHeight = 0;
+            }
+            if (y + height > mPageSize) {
+                // nothing of the last page's rows carries over
+                page++;
+                x = 0;
+                y = 0;
+                mRowHeight = 0;
+            }
+        }
+
+        void advance(int width, int height) {
+            x += width;
+            mRowHeight = Math.max(mRowHeight, height);
+        }
+
+        int getPageCount() {
+            return page + 1;
+        }
+
+        int getLastPageHeight() {
+            return Math.max(1, y + mRowHeight);
+        }
+    }
+
+    private HandAtlas(Bitmap.Config config, int pageSize) {
+        mConfig = config;
+        mPageSize = pageSize;
+    }
+
+    /**
+     * Renders the atlas, halving the hour rotations until it fits the budget
+     *
+     * @param hourRotations : positions of the hour hand, 720 is one per minute
+     * @param budget        : most bytes the pages may take
+     * @return the atlas, or null if even {@link #MIN_HOUR_ROTATIONS} do not fit the budget
+     */
+    static HandAtlas build(ClockStyle style, ClockGeometry geometry, int hourRotations, long budget) {
+        HandPath[] hands = new HandPath[3];
+        hands[SECOND] = new HandPath();
+        hands[SECOND].build(style.getSecondHandShape(), geometry.getSecondHandLength(), ClockStyle.SECOND_HAND_WIDTH);
+        hands[MINUTE] = new HandPath();
+        hands[MINUTE].build(style.getMinuteHandShape(), geometry.getMinuteHandLength(), ClockStyle.MINUTE_HAND_WIDTH);
+        hands[HOUR] = new HandPath();
+        hands[HOUR].build(style.getHourHandShape(), geometry.getHourHandLength(), ClockStyle.HOUR_HAND_WIDTH);
+        boolean isMask = isMask(style.getSecondHandShape()) && isMask(style.getMinuteHandShape())
+                && isMask(style.getHourHandShape());
+        Bitmap.Config config = isMask ? Bitmap.Config.ALPHA_8 : Bitmap.Config.ARGB_8888;
+        int bytesPerPixel = isMask ? 1 : 4;
+        int pageSize = Math.max(MIN_PAGE_SIZE, geometry.getSize());
+
+        int rotations = Math.max(MIN_HOUR_ROTATIONS, hourRotations);
+        while (true) {
+            HandAtlas atlas = new HandAtlas(config, pageSize);
+            atlas.layout(hands, geometry.getCenter(), rotations);
+            atlas.mByteCount = ((long) (atlas.mPageCount - 1) * pageSize + atlas.mLastPageHeight) * pageSize * bytesPerPixel;
+            if (atlas.mByteCount <= budget) {
+                atlas.render(hands, style, geometry.getCenter());
+                return atlas;
+            }
+            if (rotations <= MIN_HOUR_ROTATIONS) {
+                return null;
+            }
+            rotations = Math.max(MIN_HOUR_ROTATIONS, rotations / 2);
+        }
+    }
+
+    /**
+     * @return whether the shape draws only in its paint color, so a mask tinted later looks the same
+     */
+    private static boolean isMask(HandShape shape) {
+        return shape == HandShape.LINE || shape == HandShape.CAPPED_LINE
+                || shape == HandShape.TAPERED || shape == HandShape.COUNTERWEIGHTED;
+    }
+
+    /**
+     * Measures every sprite and packs them into {@link Shelves}. Neighbouring rotations have
+     * about the same size, so little space is lost.
+     */
+    private void layout(HandPath[] hands, float center, int hourRotations) {
+        mHands[SECOND] = new Sprites(SECOND_ROTATIONS);
+        mHands[MINUTE] = new Sprites(MINUTE_ROTATIONS);
+        mHands[HOUR] = new Sprites(hourRotations);
+        RectF bounds = new RectF();
+        Rect rect = new Rect();
+        Shelves shelves = new Shelves(mPageSize);
+        for (int hand = 0; hand < 3; hand++) {
+            Sprites sprites = mHands[hand];
+            for (int index = 0; index < sprites.count; index++) {
+                bounds.setEmpty();
+                hands[hand].addBounds(index * 360f / sprites.count, center, AA_PADDING, bounds);
+                bounds.roundOut(rect);
+                int width = Math.min(rect.width(), mPageSize);
+                int height = Math.min(rect.height(), mPageSize);
+                shelves.fit(width, height);
+                sprites.page[index] = shelves.page;
+                sprites.x[index] = shelves.x;
+                sprites.y[index] = shelves.y;
+                sprites.left[index] = rect.left;
+                sprites.top[index] = rect.top;
+                sprites.right[index] = rect.left + width;
+                sprites.bottom[index] = rect.top + height;
+                shelves.advance(width, height);
+            }
+        }
+        mPageCount = shelves.getPageCount();
+        mLastPageHeight = shelves.getLastPageHeight();
+    }
+
+    private void render(HandPath[] hands, ClockStyle style, float center) {
+        mPages = new Bitmap[mPageCount];
+        for (int page = 0; page < mPageCount; page++) {
+            mPages[page] = Bitmap.createBitmap(mPageSize, page == mPageCount - 1 ? mLastPageHeight : mPageSize, mConfig);
+        }
+        Paint[] paints = {style.getSecondHandPaint(), style.getMinuteHandPaint(), style.getHourHandPaint()};
+        Canvas canvas = new Canvas();
+        int canvasPage = -1;
+        for (int hand = 0; hand < 3; hand++) {
+            Sprites sprites = mHands[hand];
+            for (int index = 0; index < sprites.count; index++) {
+                if (sprites.page[index] != canvasPage) {
+                    canvasPage = sprites.page[index];
+                    canvas.setBitmap(mPages[canvasPage]);
+                }
+                int x = sprites.x[index];
+                int y = sprites.y[index];
+                int saveCount = canvas.save();
+                canvas.clipRect(x, y, x + sprites.right[index] - sprites.left[index], y + sprites.bottom[index] - sprites.top[index]);
+                // the sprite's top left is at (left, top) on the clock, so the pivot is at center minus that
+                canvas.translate(x + center - sprites.left[index], y + center - sprites.top[index]);
+                canvas.rotate(index * 360f / sprites.count);
+                hands[hand].draw(canvas, paints[hand]);
+                canvas.restoreToCount(saveCount);
+            }
+        }
+        canvas.setBitmap(null);
+    }
+
+    /**
+     * @return total bytes of the pages
+     */
+    long getByteCount() {
+        return mByteCount;
+    }
+
+    /**
+     * @return number of rotations of {@code hand}, one of {@link #SECOND}, {@link #MINUTE} or {@link #HOUR}
+     */
+    int getRotationCount(int hand) {
+        return mHands[hand].count;
+    }
+
+    /**
+     * Blits the rotation of {@code hand} closest to {@code angle} in place on the clock
+     *
+     * @param paint : hand paint, tints the masks
+     * @param src   : scratch rect
+     * @param dst   : scratch rect
+     */
+    void draw(Canvas canvas, int hand, float angle, Paint paint, Rect src, Rect dst) {
+        Sprites sprites = mHands[hand];
+        int index = Math.round(angle * sprites.count / 360f) % sprites.count;
+        if (index < 0) {
+            index += sprites.count;
+        }
+        int x = sprites.x[index];
+        int y = sprites.y[index];
+        dst.set(sprites.left[index], sprites.top[index], sprites.right[index], sprites.bottom[index]);
+        src.set(x, y, x + dst.width(), y + dst.height());
+        canvas.drawBitmap(mPages[sprites.page[index]], src, dst, mConfig == Bitmap.Config.ALPHA_8 ? paint : null);
+    }
+
+    void recycle() {
+        for (Bitmap page : mPages) {
+            page.recycle();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.pcm.clockviewlib;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+
+/**
+ * A {@link HandShape} built for one hand length, reused for every frame at that size.
+ */
+final class HandPath {
+    private final Path mPath = new Path();
+    private final RectF mBounds = new RectF();
+    private HandShape mShape;
+    private float mStrokePadding;
+
+    void build(HandShape shape, float length, float width) {
+        mShape = shape;
+        mPath.reset();
+        shape.buildPath(mPath, length, width);
+        mPath.computeBounds(mBounds, true);
+        mStrokePadding = shape.isFilled() ? 0 : width / 2f;
+    }
+
+    /**
+     * Draws the hand on a canvas already translated to the pivot and rotated to its angle
+     */
+    void draw(Canvas canvas, Paint paint) {
+        if (mShape != null) {
+            mShape.draw(canvas, mPath, mBounds, paint);
+        }
+    }
+
+    /**
+     * Adds the area the hand covers at {@code angle} around the pivot at {@code center}
+     *
+     * @param padding : extra pixels on every side, e.g. for anti-aliasing
+     */
+    void addBounds(float angle, float center, float padding, RectF out) {
+        // unit vector of 12 o'clock rotated by angle is (sin, -cos)
+        float sin = ClockGeometry.unitX(angle);
+        float cos = -ClockGeometry.unitY(angle);
+        float left = Float.MAX_VALUE;
+        float top = Float.MAX_VALUE;
+        float right = -Float.MAX_VALUE;
+        float bottom = -Float.MAX_VALUE;
+        for (int corner = 0; corner < 4; corner++) {
+            float x = corner < 2 ? mBounds.left : mBounds.right;
+            float y = corner % 2 == 0 ? mBounds.top : mBounds.bottom;
+            float rotatedX = x * cos - y * sin;
+            float rotatedY = x * sin + y * cos;
+            left = Math.min(left, rotatedX);
+            top = Math.min(top, rotatedY);
+            right = Math.max(right, rotatedX);
+            bottom = Math.max(bottom, rotatedY);
+        }
+        padding += mStrokePadding;
+        out.union(center + left - padding, center + top - padding, center + right + padding, center + bottom + padding);
+    }
+}
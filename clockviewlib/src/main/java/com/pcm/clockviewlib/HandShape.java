@@ -0,0 +1,120 @@
+package com.pcm.clockviewlib;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+
+/**
+ * Shape of a clock hand. The shape is built once per clock size, pointing at
+ * 12 o'clock with the pivot at the origin, so the tip is at {@code (0, -length)}.
+ * Every frame the canvas is rotated around the center and the built shape drawn
+ * as is, so a custom shape costs no more per frame than the default line.
+ * <p>
+ * Shapes are shared between clocks and sizes, they must not keep per size state.
+ */
+public abstract class HandShape {
+    /**
+     * Straight line from the center to the tip
+     */
+    public static final HandShape LINE = new HandShape() {
+        @Override
+        public void buildPath(Path path, float length, float width) {
+            path.moveTo(0, 0);
+            path.lineTo(0, -length);
+        }
+    };
+
+    /**
+     * Straight line ending in a small ring
+     */
+    public static final HandShape CAPPED_LINE = new HandShape() {
+        @Override
+        public void buildPath(Path path, float length, float width) {
+            path.moveTo(0, 0);
+            path.lineTo(0, -length);
+            path.addCircle(0, -length, ClockStyle.HAND_CAP_RADIUS, Path.Direction.CW);
+        }
+    };
+
+    /**
+     * Filled hand, three times the width at the center, narrowing to a point
+     */
+    public static final HandShape TAPERED = new HandShape() {
+        @Override
+        public void buildPath(Path path, float length, float width) {
+            path.moveTo(-width * 1.5f, 0);
+            path.lineTo(0, -length);
+            path.lineTo(width * 1.5f, 0);
+            path.close();
+            path.addCircle(0, 0, width * 1.5f, Path.Direction.CW);
+        }
+
+        @Override
+        public boolean isFilled() {
+            return true;
+        }
+    };
+
+    /**
+     * Line that extends behind the center into a round counterweight
+     */
+    public static final HandShape COUNTERWEIGHTED = new HandShape() {
+        @Override
+        public void buildPath(Path path, float length, float width) {
+            float tail = length / 5f;
+            path.moveTo(0, tail);
+            path.lineTo(0, -length);
+            path.addCircle(0, tail, width * 2, Path.Direction.CW);
+        }
+    };
+
+    /**
+     * @param bitmap : image of the hand pointing up, the pivot at its bottom center;
+     *               it is stretched to the hand length and three times the hand width
+     */
+    public static HandShape fromBitmap(final Bitmap bitmap) {
+        return new HandShape() {
+            @Override
+            public void buildPath(Path path, float length, float width) {
+                path.addRect(-width * 1.5f, -length, width * 1.5f, 0, Path.Direction.CW);
+            }
+
+            @Override
+            public boolean isFilled() {
+                return true;
+            }
+
+            @Override
+            public void draw(Canvas canvas, Path path, RectF bounds, Paint paint) {
+                canvas.drawBitmap(bitmap, null, bounds, paint);
+            }
+        };
+    }
+
+    /**
+     * Outlines the hand pointing at 12 o'clock around a pivot at the origin
+     *
+     * @param path   : empty path to build into
+     * @param length : distance from the pivot to the tip
+     * @param width  : stroke width of the hand paint
+     */
+    public abstract void buildPath(Path path, float length, float width);
+
+    /**
+     * @return true to fill the path, false to stroke it with the hand width
+     */
+    public boolean isFilled() {
+        return false;
+    }
+
+    /**
+     * Draws the built hand, the canvas is already rotated and centered on the pivot
+     *
+     * @param bounds : bounds of {@code path}, computed when it was built
+     */
+    public void draw(Canvas canvas, Path path, RectF bounds, Paint paint) {
+        canvas.drawPath(path, paint);
+    }
+}
@@ -0,0 +1,25 @@
+package com.pcm.clockviewlib;
+
+/**
+ * {@link TimeSource} that only moves when told to, for tests and previews.
+ */
+public final class ManualTimeSource implements TimeSource {
+    private volatile long mTimeInMillis;
+
+    public ManualTimeSource(long timeInMillis) {
+        mTimeInMillis = timeInMillis;
+    }
+
+    public void setTimeInMillis(long timeInMillis) {
+        mTimeInMillis = timeInMillis;
+    }
+
+    public void advance(long millis) {
+        mTimeInMillis += millis;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return mTimeInMillis;
+    }
+}
@@ -0,0 +1,30 @@
+package com.pcm.clockviewlib;
+
+import android.os.SystemClock;
+
+/**
+ * {@link TimeSource} anchored to the wall clock once and then advanced by
+ * {@link SystemClock#elapsedRealtime()}, so it never jumps when the device clock is
+ * adjusted. Call {@link #resync()} to pick up a corrected wall clock on purpose.
+ */
+public final class MonotonicTimeSource implements TimeSource {
+    private volatile long mAnchorTime;
+    private volatile long mAnchorElapsed;
+
+    public MonotonicTimeSource() {
+        resync();
+    }
+
+    /**
+     * Re-anchors to the current wall-clock time
+     */
+    public void resync() {
+        mAnchorElapsed = SystemClock.elapsedRealtime();
+        mAnchorTime = System.currentTimeMillis();
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return mAnchorTime + (SystemClock.elapsedRealtime() - mAnchorElapsed);
+    }
+}
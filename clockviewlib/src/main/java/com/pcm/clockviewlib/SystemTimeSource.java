@@ -0,0 +1,21 @@
+package com.pcm.clockviewlib;
+
+/**
+ * {@link TimeSource} backed by {@link System#currentTimeMillis()}, follows every
+ * change of the device clock (network time updates, manual changes).
+ */
+public final class SystemTimeSource implements TimeSource {
+    private static final SystemTimeSource INSTANCE = new SystemTimeSource();
+
+    private SystemTimeSource() {
+    }
+
+    public static SystemTimeSource getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+}
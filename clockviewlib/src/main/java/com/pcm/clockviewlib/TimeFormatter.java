@@ -0,0 +1,88 @@
+package com.pcm.clockviewlib;
+
+/**
+ * Writes the digital readout of a {@link ClockTime} into a reused char buffer,
+ * "HH:mm:ss" in 24 hour mode and "h:mm:ss AM" in 12 hour mode, seconds optional.
+ * Formatting allocates nothing.
+ */
+final class TimeFormatter {
+    /**
+     * Every char the formatter can produce
+     */
+    static final String ALPHABET = "0123456789: AMP";
+    private static final int MAX_LENGTH = "12:00:00 AM".length();
+
+    private final char[] mBuffer = new char[MAX_LENGTH];
+    private boolean is24Hour = true;
+    private boolean isSecondsShown = true;
+
+    void set24Hour(boolean is24Hour) {
+        this.is24Hour = is24Hour;
+    }
+
+    boolean is24Hour() {
+        return is24Hour;
+    }
+
+    void setSecondsShown(boolean isSecondsShown) {
+        this.isSecondsShown = isSecondsShown;
+    }
+
+    boolean isSecondsShown() {
+        return isSecondsShown;
+    }
+
+    char[] getBuffer() {
+        return mBuffer;
+    }
+
+    /**
+     * @return number of chars written to {@link #getBuffer()}
+     */
+    int format(ClockTime time) {
+        return format(time.getHour(), time.getMinute(), time.getSecond());
+    }
+
+    int format(int hour, int minute, int second) {
+        int length = 0;
+        if (is24Hour) {
+            length = putTwoDigits(hour, length);
+        } else {
+            int hour12 = hour % 12 == 0 ? 12 : hour % 12;
+            if (hour12 >= 10) {
+                mBuffer[length++] = '1';
+            }
+            mBuffer[length++] = (char) ('0' + hour12 % 10);
+        }
+        mBuffer[length++] = ':';
+        length = putTwoDigits(minute, length);
+        if (isSecondsShown) {
+            mBuffer[length++] = ':';
+            length = putTwoDigits(second, length);
+        }
+        if (!is24Hour) {
+            mBuffer[length++] = ' ';
+            mBuffer[length++] = hour < 12 ? 'A' : 'P';
+            mBuffer[length++] = 'M';
+        }
+        return length;
+    }
+
+    private int putTwoDigits(int value, int position) {
+        mBuffer[position] = (char) ('0' + value / 10);
+        mBuffer[position + 1] = (char) ('0' + value % 10);
+        return position + 2;
+    }
+
+    /**
+     * @param charWidths : advance width per char, indexed by char value, see {@link #ALPHABET}
+     * @return width of the formatted text, without measuring it again
+     */
+    float measure(int length, float[] charWidths) {
+        float width = 0;
+        for (int index = 0; index < length; index++) {
+            width += charWidths[mBuffer[index]];
+        }
+        return width;
+    }
+}
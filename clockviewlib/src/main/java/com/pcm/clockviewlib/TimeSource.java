@@ -0,0 +1,17 @@
+package com.pcm.clockviewlib;
+
+/**
+ * Supplies the wall-clock time a clock displays. The view reads it once per frame.
+ *
+ * @see SystemTimeSource
+ * @see MonotonicTimeSource
+ * @see ManualTimeSource
+ * @see FeedTimeSource
+ */
+public interface TimeSource {
+
+    /**
+     * @return current time in milliseconds since the epoch (UTC)
+     */
+    long currentTimeMillis();
+}
@@ -0,0 +1,245 @@
+package com.pcm.clockviewlib;
+
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.view.SurfaceHolder;
+
+/**
+ * Full-screen clock drawn by a {@link ClockRenderer} straight to a wallpaper surface.
+ * It draws one frame per {@link #drawFrame()} and tells when the next one is due, the
+ * {@link ClockWallpaperService.ClockEngine engine} only schedules the calls, so a test
+ * can drive it through simulated hours.
+ * <p>
+ * Each frame locks only the area the hands move through. Scrolling the home screen
+ * moves the clock, the dial bitmap is reused at its new position.
+ * Not thread safe, the engine uses it on the main thread.
+ */
+final class WallpaperClock {
+    private static final long SECOND = 1000;
+    private static final long MINUTE = 60 * SECOND;
+    // part of the surface width the clock moves while scrolling from the first home screen to the last
+    private static final float PARALLAX = 0.25f;
+
+    private final SurfaceHolder mHolder;
+    private final ClockRenderer mRenderer;
+    private ClockStyle mStyle;
+    private TimeSource mTimeSource = SystemTimeSource.getInstance();
+    private int mBackgroundColor = Color.BLACK;
+    private int mWidth;
+    private int mHeight;
+    private float mOffset = 0.5f;
+    private int mClockLeft;
+    private int mClockTop;
+    private boolean isVisible;
+    private boolean hasSurface;
+    private boolean isLowPower;
+    private boolean isFullFrame = true;
+    // wall-clock time the next frame is due, 0 when none is scheduled
+    private long mDeadline;
+    private long mWakeupCount;
+    private final FrameStats mFrameStats = new FrameStats();
+    private final RectF mDirtyBounds = new RectF();
+    private final Rect mDirtyRect = new Rect();
+
+    /**
+     * @param onDialUpdated : run on the main thread when the dial is replaced by one with its
+     *                      background, the next frame draws everything and should come right away
+     */
+    WallpaperClock(Resources resources, SurfaceHolder holder, ClockStyle style, final Runnable onDialUpdated) {
+        mHolder = holder;
+        mStyle = style;
+        mRenderer = new ClockRenderer(resources, style);
+        mRenderer.setOnDialUpdatedListener(new Runnable() {
+            @Override
+            public void run() {
+                isFullFrame = true;
+                if (onDialUpdated != null) {
+                    onDialUpdated.run();
+                }
+            }
+        });
+    }
+
+    void setClockStyle(ClockStyle style) {
+        mStyle = style;
+        mRenderer.setClockStyle(isLowPower ? style.withSecondsShown(false) : style);
+        isFullFrame = true;
+    }
+
+    /**
+     * @param timeSource : where the clock reads the time from, {@link SystemTimeSource} by default
+     */
+    void setTimeSource(TimeSource timeSource) {
+        mTimeSource = timeSource;
+        isFullFrame = true;
+    }
+
+    /**
+     * @param color : opaque color of the surface around the dial
+     */
+    void setBackgroundColor(int color) {
+        mBackgroundColor = color;
+        isFullFrame = true;
+    }
+
+    void setSurfaceSize(int width, int height) {
+        mWidth = width;
+        mHeight = height;
+        mRenderer.setSize(Math.min(width, height));
+        layout();
+    }
+
+    /**
+     * Moves the clock with the home screen, without rendering the dial again
+     *
+     * @param offset : 0 on the first home screen to 1 on the last, 0.5 centers the clock
+     */
+    void setOffset(float offset) {
+        if (offset == mOffset) {
+            return;
+        }
+        mOffset = offset;
+        layout();
+    }
+
+    private void layout() {
+        int size = mRenderer.getSize();
+        mClockLeft = (mWidth - size) / 2 + Math.round((0.5f - mOffset) * mWidth * PARALLAX);
+        mClockTop = (mHeight - size) / 2;
+        isFullFrame = true;
+    }
+
+    /**
+     * @param available : false once the surface is destroyed, until a new one is created;
+     *                  kept apart from visibility, which is not reported again for a new surface
+     */
+    void setSurfaceAvailable(boolean available) {
+        hasSurface = available;
+        mDeadline = 0;
+        isFullFrame = true;
+    }
+
+    /**
+     * @param visible : false to stop drawing, {@link #drawFrame()} draws nothing and schedules nothing
+     */
+    void setVisible(boolean visible) {
+        isVisible = visible;
+        mDeadline = 0;
+        if (visible) {
+            // the surface may have been shown by someone else meanwhile
+            isFullFrame = true;
+        }
+    }
+
+    /**
+     * Low power mode for battery saver: no second hand or seconds in the readout, and one
+     * frame per minute, right after the minute boundary
+     */
+    void setLowPowerMode(boolean lowPower) {
+        if (lowPower == isLowPower) {
+            return;
+        }
+        isLowPower = lowPower;
+        mRenderer.setSecondHandShown(!lowPower);
+        mRenderer.setClockStyle(lowPower ? mStyle.withSecondsShown(false) : mStyle);
+        isFullFrame = true;
+    }
+
+    boolean isLowPowerMode() {
+        return isLowPower;
+    }
+
+    /**
+     * Picks up a change of the device time zone
+     */
+    void updateDefaultTimeZone() {
+        if (mRenderer.updateDefaultTimeZone()) {
+            isFullFrame = true;
+        }
+    }
+
+    /**
+     * Draws everything on the next frame, e.g. when the system asks for a redraw
+     */
+    void invalidate() {
+        isFullFrame = true;
+    }
+
+    /**
+     * Lets go of the dial, it is picked up again on the next frame
+     */
+    void release() {
+        mRenderer.release();
+        isFullFrame = true;
+    }
+
+    /**
+     * Draws the current time, if anything changed since the last frame
+     *
+     * @return milliseconds until the next wall-clock second, or minute in low power mode;
+     * -1 while invisible or without a surface, when no frame should be scheduled
+     */
+    long drawFrame() {
+        if (!isVisible || !hasSurface || mWidth <= 0 || mHeight <= 0) {
+            return -1;
+        }
+        mWakeupCount++;
+        long now = mTimeSource.currentTimeMillis();
+        long interval = isLowPower ? MINUTE : SECOND;
+        long start = System.nanoTime();
+        if (draw(now)) {
+            boolean missed = mDeadline != 0 && now - mDeadline >= interval;
+            mFrameStats.recordFrame(System.nanoTime() - start, missed);
+        }
+        long delay = interval - now % interval;
+        mDeadline = now + delay;
+        return delay;
+    }
+
+    /**
+     * @return false if nothing changed or the surface could not be locked
+     */
+    private boolean draw(long now) {
+        mDirtyBounds.setEmpty();
+        if (isFullFrame || !mRenderer.getDirtyBounds(now, mDirtyBounds)) {
+            mDirtyRect.set(0, 0, mWidth, mHeight);
+        } else if (mDirtyBounds.isEmpty()) {
+            return false;
+        } else {
+            mDirtyBounds.offset(mClockLeft, mClockTop);
+            mDirtyBounds.roundOut(mDirtyRect);
+        }
+        // the surface may grow the dirty area, e.g. when it does not keep the previous frame
+        Canvas canvas = mHolder.lockCanvas(mDirtyRect);
+        if (canvas == null) {
+            return false;
+        }
+        try {
+            canvas.clipRect(mDirtyRect);
+            canvas.drawColor(mBackgroundColor);
+            canvas.translate(mClockLeft, mClockTop);
+            mRenderer.draw(canvas, now);
+        } finally {
+            mHolder.unlockCanvasAndPost(canvas);
+        }
+        isFullFrame = false;
+        return true;
+    }
+
+    /**
+     * @return number of {@link #drawFrame()} calls while visible, each one a wakeup of the engine
+     */
+    long getWakeupCount() {
+        return mWakeupCount;
+    }
+
+    /**
+     * @return draw times of the frames that locked the surface
+     */
+    FrameStats getFrameStats() {
+        return mFrameStats;
+    }
+}
@@ -0,0 +1,82 @@
+package com.pcm.clockviewlib;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the {@link ClockGeometry} tables against the trigonometry the draw methods used per frame.
+ */
+public class ClockGeometryTest {
+    private static final int START_ANGLE = -90;
+    private static final float TOLERANCE = 1f;
+    private static final int[] SIZES = {120, 400, 1081, 2160};
+
+    private static float trigX(int center, float angle, float radius) {
+        double radians = Math.toRadians((float) (START_ANGLE + angle + (Math.PI / 180)));
+        return (float) (center + radius * Math.cos(radians));
+    }
+
+    private static float trigY(int center, float angle, float radius) {
+        double radians = Math.toRadians((float) (START_ANGLE + angle + (Math.PI / 180)));
+        return (float) (center + radius * Math.sin(radians));
+    }
+
+    @Test
+    public void handTips_matchTrig() throws Exception {
+        ClockGeometry geometry = new ClockGeometry();
+        for (int size : SIZES) {
+            geometry.setSize(size);
+            int center = size / 2;
+            for (int step = 0; step < ClockGeometry.ANGLE_STEPS; step++) {
+                float angle = step / 2f;
+                float length = center / 2f;
+                assertEquals(trigX(center, angle, length), geometry.getX(angle, geometry.getHourHandLength()), TOLERANCE);
+                assertEquals(trigY(center, angle, length), geometry.getY(angle, geometry.getHourHandLength()), TOLERANCE);
+            }
+            for (int second = 0; second < 60; second++) {
+                float angle = second * 6;
+                assertEquals(trigX(center, angle, center / 1.5f), geometry.getX(angle, geometry.getSecondHandLength()), TOLERANCE);
+                assertEquals(trigY(center, angle, center / 1.5f), geometry.getY(angle, geometry.getSecondHandLength()), TOLERANCE);
+                assertEquals(trigX(center, angle, center / 1.75f), geometry.getX(angle, geometry.getMinuteHandLength()), TOLERANCE);
+                assertEquals(trigY(center, angle, center / 1.75f), geometry.getY(angle, geometry.getMinuteHandLength()), TOLERANCE);
+            }
+        }
+    }
+
+    @Test
+    public void arbitraryAngles_matchTrig() throws Exception {
+        ClockGeometry geometry = new ClockGeometry();
+        geometry.setSize(2160);
+        int center = 1080;
+        for (float angle = -30f; angle < 720f; angle += 0.037f) {
+            assertEquals(trigX(center, angle, center / 1.5f), geometry.getX(angle, geometry.getSecondHandLength()), TOLERANCE);
+            assertEquals(trigY(center, angle, center / 1.5f), geometry.getY(angle, geometry.getSecondHandLength()), TOLERANCE);
+        }
+    }
+
+    @Test
+    public void faceTables_matchTrig() throws Exception {
+        ClockGeometry geometry = new ClockGeometry();
+        for (int size : SIZES) {
+            geometry.setSize(size);
+            int center = size / 2;
+            float[] ticks = geometry.getTicks();
+            for (int index = 0; index < 60; index++) {
+                assertEquals(trigX(center, index * 6, center / 1.35f), ticks[index * 2], TOLERANCE);
+                assertEquals(trigY(center, index * 6, center / 1.35f), ticks[index * 2 + 1], TOLERANCE);
+            }
+            float[] inner = geometry.getMajorInnerTicks();
+            float[] outer = geometry.getMajorOuterTicks();
+            float[] labels = geometry.getLabelAnchors();
+            for (int index = 0; index < 12; index++) {
+                assertEquals(trigX(center, index * 30, center / 1.4f), inner[index * 2], TOLERANCE);
+                assertEquals(trigY(center, index * 30, center / 1.4f), inner[index * 2 + 1], TOLERANCE);
+                assertEquals(trigX(center, index * 30, center / 1.3f), outer[index * 2], TOLERANCE);
+                assertEquals(trigY(center, index * 30, center / 1.3f), outer[index * 2 + 1], TOLERANCE);
+                assertEquals(trigX(center, index * 30, center / 1.5f), labels[index * 2], TOLERANCE);
+                assertEquals(trigY(center, index * 30, center / 1.5f), labels[index * 2 + 1], TOLERANCE);
+            }
+        }
+    }
+}
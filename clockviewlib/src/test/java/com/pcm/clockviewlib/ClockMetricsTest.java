@@ -0,0 +1,122 @@
+package com.pcm.clockviewlib;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks what {@link ClockMetrics} records and that recording stays cheap.
+ */
+public class ClockMetricsTest {
+
+    @Test
+    public void bucketOf_isLogarithmic() throws Exception {
+        assertEquals(0, ClockMetrics.bucketOf(0, 100));
+        assertEquals(0, ClockMetrics.bucketOf(99, 100));
+        assertEquals(1, ClockMetrics.bucketOf(100, 100));
+        assertEquals(2, ClockMetrics.bucketOf(399, 100));
+        assertEquals(3, ClockMetrics.bucketOf(400, 100));
+        assertEquals(ClockMetrics.BUCKET_COUNT - 1, ClockMetrics.bucketOf(Long.MAX_VALUE, 100));
+        for (int index = 0; index < ClockMetrics.BUCKET_COUNT - 1; index++) {
+            long bound = ClockMetrics.getBucketUpperBound(index, 100);
+            assertEquals(index, ClockMetrics.bucketOf(bound - 1, 100));
+            assertEquals(index + 1, ClockMetrics.bucketOf(bound, 100));
+        }
+    }
+
+    @Test
+    public void ticks_countLatenessDroppedAndCoalesced() throws Exception {
+        ClockMetrics metrics = new ClockMetrics();
+        metrics.recordTick(10003, false);
+        metrics.recordTick(11002, false);
+        // 12 and 13 never ticked
+        metrics.recordTick(14250, false);
+        metrics.recordTick(15001, true);
+
+        ClockMetrics.Snapshot snapshot = metrics.snapshot(new ClockMetrics.Snapshot());
+        assertEquals(4, snapshot.getTickCount());
+        assertEquals(2, snapshot.getDroppedTickCount());
+        assertEquals(1, snapshot.getCoalescedTickCount());
+        assertEquals(4, snapshot.getRecentTickCount());
+        assertArrayEquals(new long[]{3, 2, 250, 1}, Arrays.copyOf(snapshot.getRecentTickLateness(), 4));
+        assertEquals(1, snapshot.getTickLatenessHistogram()[ClockMetrics.bucketOf(250, 1)]);
+    }
+
+    @Test
+    public void resetTicks_doesNotCountAPauseAsDropped() throws Exception {
+        ClockMetrics metrics = new ClockMetrics();
+        metrics.recordTick(10003, false);
+        // e.g. scrolled out or the screen off for a minute
+        metrics.resetTicks();
+        metrics.recordTick(70002, false);
+        metrics.recordTick(71001, false);
+
+        ClockMetrics.Snapshot snapshot = metrics.snapshot(new ClockMetrics.Snapshot());
+        assertEquals(3, snapshot.getTickCount());
+        assertEquals(0, snapshot.getDroppedTickCount());
+    }
+
+    @Test
+    public void recentTicks_keepTheLatestInOrder() throws Exception {
+        ClockMetrics metrics = new ClockMetrics();
+        int ticks = ClockMetrics.RECENT_TICK_COUNT + 10;
+        for (int tick = 0; tick < ticks; tick++) {
+            metrics.recordTick(tick * 1000L + tick, false);
+        }
+        ClockMetrics.Snapshot snapshot = metrics.snapshot(new ClockMetrics.Snapshot());
+        assertEquals(ClockMetrics.RECENT_TICK_COUNT, snapshot.getRecentTickCount());
+        assertEquals(10, snapshot.getRecentTickLateness()[0]);
+        assertEquals(ticks - 1, snapshot.getRecentTickLateness()[ClockMetrics.RECENT_TICK_COUNT - 1]);
+    }
+
+    @Test
+    public void frames_andDialCache() throws Exception {
+        ClockMetrics metrics = new ClockMetrics();
+        metrics.recordFrame(50000);
+        metrics.recordFrame(3000000);
+        metrics.recordDialAcquired(false, 640000);
+        metrics.recordDialAcquired(true, 640000);
+
+        ClockMetrics.Snapshot snapshot = metrics.snapshot(new ClockMetrics.Snapshot());
+        assertEquals(2, snapshot.getFrameCount());
+        assertEquals(1, snapshot.getDrawTimeHistogram()[0]);
+        assertEquals(1, snapshot.getDrawTimeHistogram()[ClockMetrics.bucketOf(3000000, ClockMetrics.DRAW_TIME_UNIT_NANOS)]);
+        assertEquals(1, snapshot.getDialHitCount());
+        assertEquals(1, snapshot.getDialMissCount());
+        assertEquals(640000, snapshot.getDialBitmapBytes());
+
+        metrics.recordDialReleased();
+        assertEquals(0, metrics.snapshot(snapshot).getDialBitmapBytes());
+    }
+
+    @Test
+    public void timeUpdates_countCoalesced() throws Exception {
+        ClockMetrics metrics = new ClockMetrics();
+        metrics.recordTimeUpdate(false);
+        metrics.recordTimeUpdate(true);
+        metrics.recordTimeUpdate(true);
+
+        ClockMetrics.Snapshot snapshot = metrics.snapshot(new ClockMetrics.Snapshot());
+        assertEquals(3, snapshot.getTimeUpdateCount());
+        assertEquals(2, snapshot.getCoalescedTimeUpdateCount());
+    }
+
+    @Test
+    public void recordFrame_costsUnderOnePercentOfAFrame() throws Exception {
+        ClockMetrics metrics = new ClockMetrics();
+        int frames = 1000000;
+        // warm up
+        for (int frame = 0; frame < frames; frame++) {
+            metrics.recordFrame(frame);
+        }
+        long start = System.nanoTime();
+        for (int frame = 0; frame < frames; frame++) {
+            metrics.recordFrame(frame);
+        }
+        long perFrame = (System.nanoTime() - start) / frames;
+        // 1% of a 60 fps frame
+        assertTrue(perFrame + "ns", perFrame < 166666);
+    }
+}
@@ -0,0 +1,83 @@
+package com.pcm.clockviewlib;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks {@link ClockTime} field arithmetic against {@link Calendar}, across DST transitions.
+ */
+public class ClockTimeTest {
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    @Test
+    public void fields_matchCalendar_acrossDstTransitions() throws Exception {
+        TimeZone timeZone = TimeZone.getTimeZone("America/New_York");
+        ClockTime clockTime = new ClockTime(timeZone);
+        Calendar calendar = Calendar.getInstance(timeZone);
+
+        // 2017-03-01 to 2017-11-30, spans both transitions, in steps that are not a divisor of a day
+        calendar.clear();
+        calendar.set(2017, Calendar.MARCH, 1, 0, 0, 0);
+        long start = calendar.getTimeInMillis();
+        calendar.set(2017, Calendar.NOVEMBER, 30, 0, 0, 0);
+        long end = calendar.getTimeInMillis();
+        for (long time = start; time < end; time += 7 * 60 * 1000L + 13_007L) {
+            clockTime.set(time);
+            calendar.setTimeInMillis(time);
+            assertEquals(calendar.get(Calendar.HOUR_OF_DAY), clockTime.getHour());
+            assertEquals(calendar.get(Calendar.MINUTE), clockTime.getMinute());
+            assertEquals(calendar.get(Calendar.SECOND), clockTime.getSecond());
+            assertEquals(calendar.get(Calendar.MILLISECOND), clockTime.getMillis());
+        }
+    }
+
+    @Test
+    public void offset_isOnlyLookedUpAtTransitions() throws Exception {
+        TimeZone timeZone = TimeZone.getTimeZone("Europe/London");
+        ClockTime clockTime = new ClockTime(timeZone);
+        Calendar calendar = Calendar.getInstance(timeZone);
+        calendar.clear();
+        calendar.set(2017, Calendar.MARCH, 25, 12, 0, 0);
+        long start = calendar.getTimeInMillis();
+
+        // one tick per second over two days, with the spring forward in between
+        for (long time = start; time < start + 48 * HOUR; time += 1000) {
+            clockTime.set(time);
+        }
+        assertTrue(clockTime.getOffsetLookupCount() <= 3);
+    }
+
+    @Test
+    public void fields_beforeEpoch() throws Exception {
+        ClockTime clockTime = new ClockTime(TimeZone.getTimeZone("UTC"));
+        clockTime.set(-1000);
+        assertEquals(23, clockTime.getHour());
+        assertEquals(59, clockTime.getMinute());
+        assertEquals(59, clockTime.getSecond());
+    }
+
+    @Test
+    public void handAngles() throws Exception {
+        ClockTime clockTime = new ClockTime(TimeZone.getTimeZone("UTC"));
+        // 15:30:45
+        clockTime.set(15 * HOUR + 30 * 60 * 1000L + 45 * 1000L);
+        assertEquals(270f, clockTime.getSecondAngle(), 0f);
+        assertEquals(180f, clockTime.getMinuteAngle(), 0f);
+        assertEquals(105f, clockTime.getHourAngle(), 0f);
+    }
+
+    @Test
+    public void handAngles_continuous() throws Exception {
+        ClockTime clockTime = new ClockTime(TimeZone.getTimeZone("UTC"));
+        clockTime.setContinuous(true);
+        // 15:30:45.500
+        clockTime.set(15 * HOUR + 30 * 60 * 1000L + 45 * 1000L + 500);
+        assertEquals(273f, clockTime.getSecondAngle(), 0.001f);
+        assertEquals(184.55f, clockTime.getMinuteAngle(), 0.001f);
+        assertEquals(105.375f, clockTime.getHourAngle(), 0.001f);
+    }
+}
@@ -0,0 +1,57 @@
+package com.pcm.clockviewlib;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks how {@link HandAtlas.Shelves} packs sprites into rows and pages.
+ */
+public class HandAtlasTest {
+    private static final int PAGE_SIZE = 100;
+
+    @Test
+    public void fullRow_wrapsBelowTheTallestSprite() throws Exception {
+        HandAtlas.Shelves shelves = new HandAtlas.Shelves(PAGE_SIZE);
+        shelves.fit(60, 30);
+        shelves.advance(60, 30);
+        shelves.fit(30, 10);
+        assertEquals(60, shelves.x);
+        assertEquals(0, shelves.y);
+        shelves.advance(30, 10);
+
+        shelves.fit(20, 10);
+        assertEquals(0, shelves.page);
+        assertEquals(0, shelves.x);
+        assertEquals(30, shelves.y);
+        shelves.advance(20, 10);
+        assertEquals(40, shelves.getLastPageHeight());
+    }
+
+    @Test
+    public void overflowingLayout_startsTheNextPageAtTheTopLeft() throws Exception {
+        HandAtlas.Shelves shelves = new HandAtlas.Shelves(PAGE_SIZE);
+        // a tall row, then a second one that ends at the page's bottom
+        shelves.fit(60, 90);
+        shelves.advance(60, 90);
+        shelves.fit(60, 10);
+        assertEquals(0, shelves.page);
+        assertEquals(0, shelves.x);
+        assertEquals(90, shelves.y);
+        shelves.advance(60, 10);
+
+        // fits on the row, but not below the page's bottom
+        shelves.fit(10, 20);
+        assertEquals(1, shelves.page);
+        assertEquals(0, shelves.x);
+        assertEquals(0, shelves.y);
+        shelves.advance(10, 20);
+        assertEquals(2, shelves.getPageCount());
+        // the rows of the first page do not push the second one down
+        assertEquals(20, shelves.getLastPageHeight());
+        shelves.fit(10, 90);
+        assertEquals(1, shelves.page);
+        assertEquals(10, shelves.x);
+        assertEquals(0, shelves.y);
+    }
+}
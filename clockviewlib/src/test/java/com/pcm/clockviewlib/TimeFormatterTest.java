@@ -0,0 +1,51 @@
+package com.pcm.clockviewlib;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the readout produced by {@link TimeFormatter} in every mode.
+ */
+public class TimeFormatterTest {
+
+    private static String format(TimeFormatter formatter, int hour, int minute, int second) {
+        int length = formatter.format(hour, minute, second);
+        return new String(formatter.getBuffer(), 0, length);
+    }
+
+    @Test
+    public void format_24Hour() throws Exception {
+        TimeFormatter formatter = new TimeFormatter();
+        assertEquals("07:05:09", format(formatter, 7, 5, 9));
+        assertEquals("00:00:00", format(formatter, 0, 0, 0));
+        assertEquals("23:59:59", format(formatter, 23, 59, 59));
+
+        formatter.setSecondsShown(false);
+        assertEquals("23:59", format(formatter, 23, 59, 59));
+    }
+
+    @Test
+    public void format_12Hour() throws Exception {
+        TimeFormatter formatter = new TimeFormatter();
+        formatter.set24Hour(false);
+        assertEquals("12:00:00 AM", format(formatter, 0, 0, 0));
+        assertEquals("7:05:09 AM", format(formatter, 7, 5, 9));
+        assertEquals("12:30:00 PM", format(formatter, 12, 30, 0));
+        assertEquals("11:59:59 PM", format(formatter, 23, 59, 59));
+
+        formatter.setSecondsShown(false);
+        assertEquals("1:15 PM", format(formatter, 13, 15, 0));
+    }
+
+    @Test
+    public void measure_sumsCachedCharWidths() throws Exception {
+        TimeFormatter formatter = new TimeFormatter();
+        float[] widths = new float[128];
+        for (char c : TimeFormatter.ALPHABET.toCharArray()) {
+            widths[c] = c == ':' ? 4 : 10;
+        }
+        int length = formatter.format(10, 20, 30);
+        assertEquals(6 * 10 + 2 * 4, formatter.measure(length, widths), 0f);
+    }
+}